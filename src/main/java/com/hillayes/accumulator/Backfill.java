@@ -0,0 +1,228 @@
+package com.hillayes.accumulator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Materializes the history of one or more series, at each of the given resolutions, over
+ * a long date range. The range is divided into chunks, aligned to the periods of the
+ * coarsest resolution; and the chunks are materialized concurrently, each at every
+ * resolution in ascending order of their period length. So each resolution of a chunk
+ * is accumulated from the one materialized before it, and only the first requires data
+ * from the warehouse.
+ * <p>
+ * The number of chunks in progress at any one time is bounded, and the chunks may be
+ * started no more often than a given interval; to limit the load placed on the warehouse.
+ * <p>
+ * The progress of each backfill job is recorded in a {@link CheckpointStore}, as the
+ * instant up to which all chunks have completed. A job that is run again, after a restart
+ * or a failure, resumes from its checkpoint.
+ *
+ * @param <T> the class of DateRangedData to be materialized.
+ */
+@Slf4j
+public class Backfill<T extends DateRangedData> {
+    private final ResolutionLoader<T> loader;
+    private final CheckpointStore checkpoints;
+    private final Duration chunkSize;
+    private final int maxConcurrency;
+    private final Duration chunkInterval;
+
+    /**
+     * @param aLoader the loader by which each chunk will be materialized.
+     * @param aCheckpoints the store in which the progress of each job is recorded.
+     * @param aChunkSize the span of each chunk. Rounded down to the periods of the coarsest
+     * resolution; but each chunk covers at least one such period.
+     * @param aMaxConcurrency the max number of chunks in progress at any one time.
+     * @param aChunkInterval the min interval between the starts of successive chunks. Zero
+     * if the chunks are limited only by the max concurrency.
+     */
+    public Backfill(ResolutionLoader<T> aLoader,
+                    CheckpointStore aCheckpoints,
+                    Duration aChunkSize,
+                    int aMaxConcurrency,
+                    Duration aChunkInterval) {
+        loader = aLoader;
+        checkpoints = aCheckpoints;
+        chunkSize = aChunkSize;
+        maxConcurrency = aMaxConcurrency;
+        chunkInterval = aChunkInterval;
+    }
+
+    /**
+     * Runs the identified backfill job; returning once all its chunks have completed. Only
+     * the closed periods of the coarsest resolution are materialized; the given start and
+     * end dates being rounded down to its boundaries. If the job has a checkpoint, it
+     * resumes from there.
+     * <p>
+     * A chunk that fails is logged and the remaining chunks continue; but the job's
+     * checkpoint won't advance beyond the failed chunk. So running the job again will
+     * retry the failed chunk; the chunks that follow it being found already materialized.
+     *
+     * @param aJob the key that identifies the job; under which its progress is recorded.
+     * @param aSeries the keys of the series to be materialized.
+     * @param aResolutions the resolutions to be materialized.
+     * @param aStartDate the start of the date range to be materialized, inclusive.
+     * @param aEndDate the end of the date range to be materialized, exclusive.
+     * @return the instant up to which the job has completed. If earlier than the rounded
+     * end date, a chunk has failed.
+     * @throws InterruptedException if interrupted while waiting for the chunks. Any chunks
+     * in progress are also interrupted.
+     */
+    public Instant run(String aJob, Collection<String> aSeries, List<Resolution> aResolutions,
+                       Instant aStartDate, Instant aEndDate) throws InterruptedException {
+        if (aResolutions.isEmpty()) {
+            throw new IllegalArgumentException("No resolutions given");
+        }
+
+        // materialize from the shortest period to the longest
+        List<String> series = List.copyOf(new LinkedHashSet<>(aSeries));
+        List<Resolution> resolutions = aResolutions.stream()
+            .sorted(Comparator.comparing(resolution ->
+                Duration.between(resolution.roundDown(aStartDate), resolution.next(aStartDate))))
+            .toList();
+        Resolution coarsest = resolutions.get(resolutions.size() - 1);
+
+        Instant startDate = coarsest.roundDown(aStartDate);
+        Instant endDate = coarsest.roundDown(min(aEndDate, Instant.now()));
+        Instant resumeFrom = checkpoints.get(aJob)
+            .map(coarsest::roundDown)
+            .filter(checkpoint -> checkpoint.isAfter(startDate))
+            .orElse(startDate);
+
+        List<DateRange> chunks = chunks(coarsest, resumeFrom, endDate);
+        if (log.isDebugEnabled()) {
+            log.debug("Starting backfill [job: {}, series: {}, start: {}, end: {}, resumeFrom: {}, chunks: {}]",
+                aJob, series.size(), startDate, endDate, resumeFrom, chunks.size());
+        }
+        if (chunks.isEmpty()) {
+            return resumeFrom;
+        }
+
+        Progress progress = new Progress(aJob, resumeFrom, chunks);
+        Semaphore concurrency = new Semaphore(maxConcurrency);
+        ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            Instant nextStart = Instant.now();
+            for (int index = 0; index < chunks.size(); index++) {
+                concurrency.acquire();
+
+                // pace the starts of the chunks
+                long delay = Duration.between(Instant.now(), nextStart).toMillis();
+                if (delay > 0) {
+                    Thread.sleep(delay);
+                }
+                nextStart = Instant.now().plus(chunkInterval);
+
+                DateRange chunk = chunks.get(index);
+                int chunkIndex = index;
+                executorService.execute(() -> {
+                    try {
+                        materialize(series, resolutions, chunk);
+                        progress.completed(chunkIndex);
+                    } catch (Exception e) {
+                        log.warn("Failed to backfill chunk [job: {}, start: {}, end: {}]",
+                            aJob, chunk.getStartDate(), chunk.getEndDate(), e);
+                    } finally {
+                        concurrency.release();
+                    }
+                });
+            }
+
+            executorService.shutdown();
+            executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        Instant result = progress.getCompleted();
+        log.debug("Completed backfill [job: {}, completed: {}, end: {}]", aJob, result, endDate);
+        return result;
+    }
+
+    /**
+     * Materializes the given chunk of the given series at each of the given resolutions,
+     * in the order given. The chunk is loaded in windows, whose data is discarded; so
+     * neither the chunk's data is collected, nor read-ahead triggered beyond its range.
+     */
+    private void materialize(List<String> aSeries, List<Resolution> aResolutions, DateRange aChunk) {
+        aResolutions.forEach(resolution -> {
+            if (log.isDebugEnabled()) {
+                log.debug("Backfilling chunk [series: {}, resolution: {}, start: {}, end: {}]",
+                    aSeries.size(), resolution, aChunk.getStartDate(), aChunk.getEndDate());
+            }
+            loader.loadWindowed(aSeries, resolution, aChunk.getStartDate(), aChunk.getEndDate(), data -> {});
+        });
+    }
+
+    /**
+     * Divides the given date range, whose dates fall on boundaries of the given resolution,
+     * into chunks of the configured size; each covering at least one period of that resolution.
+     */
+    private List<DateRange> chunks(Resolution aResolution, Instant aStartDate, Instant aEndDate) {
+        List<DateRange> result = new ArrayList<>();
+        Instant chunkStart = aStartDate;
+        while (chunkStart.isBefore(aEndDate)) {
+            Instant chunkEnd = aResolution.roundDown(chunkStart.plus(chunkSize));
+            if (!chunkEnd.isAfter(chunkStart)) {
+                chunkEnd = aResolution.next(chunkStart);
+            }
+            chunkEnd = min(chunkEnd, aEndDate);
+            result.add(new DateRange(chunkStart, chunkEnd));
+            chunkStart = chunkEnd;
+        }
+        return result;
+    }
+
+    private Instant min(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    /**
+     * Tracks the chunks of a job that have completed; recording the job's checkpoint as
+     * the end of the contiguous run of completed chunks from its start.
+     */
+    private class Progress {
+        private final String job;
+        private final List<DateRange> chunks;
+        private final boolean[] completed;
+        private Instant checkpoint;
+
+        /**
+         * The index of the first chunk not yet completed.
+         */
+        private int next;
+
+        Progress(String aJob, Instant aResumeFrom, List<DateRange> aChunks) {
+            job = aJob;
+            chunks = aChunks;
+            completed = new boolean[aChunks.size()];
+            checkpoint = aResumeFrom;
+        }
+
+        synchronized void completed(int aIndex) {
+            completed[aIndex] = true;
+            if (aIndex != next) {
+                return;
+            }
+
+            while ((next < completed.length) && (completed[next])) {
+                next++;
+            }
+            checkpoint = chunks.get(next - 1).getEndDate();
+            checkpoints.put(job, checkpoint);
+            log.debug("Recorded backfill checkpoint [job: {}, completed: {}]", job, checkpoint);
+        }
+
+        synchronized Instant getCompleted() {
+            return checkpoint;
+        }
+    }
+}
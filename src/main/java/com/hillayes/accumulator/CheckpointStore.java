@@ -0,0 +1,28 @@
+package com.hillayes.accumulator;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Records the progress of each {@link Backfill} job; so that a job interrupted by a
+ * restart can be resumed from where it left off, rather than from its start. An
+ * implementation would typically persist the checkpoints alongside the local repository.
+ */
+public interface CheckpointStore {
+    /**
+     * Returns the checkpoint last recorded for the identified job.
+     *
+     * @param aJob the key that identifies the backfill job.
+     * @return the instant up to which the job has completed; or empty if the job has no
+     * checkpoint.
+     */
+    Optional<Instant> get(String aJob);
+
+    /**
+     * Records the checkpoint of the identified job; replacing any previously recorded.
+     *
+     * @param aJob the key that identifies the backfill job.
+     * @param aCompleted the instant up to which the job has completed.
+     */
+    void put(String aJob, Instant aCompleted);
+}
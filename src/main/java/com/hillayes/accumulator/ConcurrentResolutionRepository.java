@@ -1,14 +1,22 @@
 package com.hillayes.accumulator;
 
 import java.time.Instant;
-import java.util.List;
-import java.util.Spliterator;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.StreamSupport;
 
 /**
  * An implementation of ResolutionRepository that offloads the persistence of
  * the batch of accumulated data to a separate thread.
+ * <p>
+ * Optionally, it maintains a filter of the elements it has persisted; and drops any
+ * element already persisted before the batch is passed to the database. This avoids
+ * the cost of re-writing the elements accumulated by concurrent requests for the same
+ * data; which the database would otherwise have to ignore. As the filter may mistake an
+ * element for persisted, each element it reports is confirmed by reading the database;
+ * only those elements not written in the meantime are re-written.
  *
  * @param <T> the data type of the batch to be persisted.
  */
@@ -17,31 +25,130 @@ public abstract class ConcurrentResolutionRepository<T extends DateRangedData> i
     private final ThreadedDatabase<T> database;
     private final AtomicInteger pendingBatchCount = new AtomicInteger();
 
+    /**
+     * The filter of the elements already persisted. Null if disabled.
+     */
+    private final PersistedFilter persisted;
+
+    /**
+     * Identifies the resolution of each element; as the filter's key.
+     */
+    private final Function<T, Resolution> resolutionOf;
+
     public ConcurrentResolutionRepository(ThreadedDatabase<T> aBatchWriter) {
+        this(aBatchWriter, 0, null);
+    }
+
+    /**
+     * @param aBatchWriter the database to which the batches are written.
+     * @param aPersistedFilterSize the number of persisted elements to be recorded in each
+     * generation of the filter. Zero disables the filter.
+     * @param aResolutionOf identifies the resolution of each element to be persisted. Only
+     * required if the filter is enabled.
+     */
+    public ConcurrentResolutionRepository(ThreadedDatabase<T> aBatchWriter, int aPersistedFilterSize,
+                                          Function<T, Resolution> aResolutionOf) {
         // a pool of virtual threads on which batches can be persisted
         this.executorService = Executors.newVirtualThreadPerTaskExecutor();
 
         // a database which resolutions can be written to and retrieved from
         this.database = aBatchWriter;
+
+        this.persisted = (aPersistedFilterSize > 0) ? new PersistedFilter(aPersistedFilterSize, 0.01) : null;
+        this.resolutionOf = aResolutionOf;
     }
 
     @Override
-    public List<T> get(Resolution aResolution, Instant aStartDate, Instant aEndDate) {
-        return database.get(aResolution, aStartDate, aEndDate);
+    public List<T> get(String aSeries, Resolution aResolution, Instant aStartDate, Instant aEndDate) {
+        return database.get(aSeries, aResolution, aStartDate, aEndDate);
     }
 
     @Override
-    public final void saveBatch(Spliterator<T> aBatch) {
+    public Map<String, List<T>> get(Collection<String> aSeries, Resolution aResolution,
+                                    Instant aStartDate, Instant aEndDate) {
+        return database.get(aSeries, aResolution, aStartDate, aEndDate);
+    }
+
+    @Override
+    public List<DateRange> getEmpty(String aSeries, Resolution aResolution, Instant aStartDate, Instant aEndDate) {
+        return database.getEmpty(aSeries, aResolution, aStartDate, aEndDate);
+    }
+
+    @Override
+    public boolean saveEmpty(String aSeries, Resolution aResolution, List<DateRange> aRanges) {
+        return database.saveEmpty(aSeries, aResolution, aRanges);
+    }
+
+    @Override
+    public final void saveBatch(String aSeries, Spliterator<T> aBatch) {
+        if (persisted == null) {
+            submit(aSeries, aBatch, null);
+            return;
+        }
+
+        List<T> batch = StreamSupport.stream(aBatch, false).toList();
+        submit(aSeries, null, batch);
+    }
+
+    /**
+     * Submits the given batch to be persisted. If the filter is enabled, the batch is
+     * given as the list of its elements; those already persisted are dropped, and the
+     * remainder recorded in the filter once written.
+     */
+    private void submit(String aSeries, Spliterator<T> aBatch, List<T> aElements) {
         pendingBatchCount.incrementAndGet();
         executorService.submit(() -> {
             try {
-                database.saveBatch(aBatch);
+                if (aElements == null) {
+                    database.saveBatch(aSeries, aBatch);
+                    return;
+                }
+
+                List<T> unpersisted = unpersisted(aSeries, aElements);
+                if (!unpersisted.isEmpty()) {
+                    database.saveBatch(aSeries, unpersisted.spliterator());
+                    unpersisted.forEach(data ->
+                        persisted.add(resolutionOf.apply(data), aSeries, data.getStartDate(), data.getEndDate()));
+                }
             } finally {
                 pendingBatchCount.decrementAndGet();
             }
         });
     }
 
+    /**
+     * Returns those of the given elements not already persisted. The elements the filter
+     * reports as possibly persisted are confirmed against the database; reading, for each
+     * resolution, the date range they span.
+     */
+    private List<T> unpersisted(String aSeries, List<T> aElements) {
+        Map<Resolution, List<T>> reported = new HashMap<>();
+        aElements.forEach(data -> {
+            Resolution resolution = resolutionOf.apply(data);
+            if (persisted.mightContain(resolution, aSeries, data.getStartDate(), data.getEndDate())) {
+                reported.computeIfAbsent(resolution, k -> new ArrayList<>()).add(data);
+            }
+        });
+        if (reported.isEmpty()) {
+            return aElements;
+        }
+
+        Set<Key> confirmed = new HashSet<>();
+        reported.forEach((resolution, list) -> {
+            Instant startDate = list.stream().map(DateRangedData::getStartDate).min(Comparator.naturalOrder()).get();
+            Instant endDate = list.stream().map(DateRangedData::getEndDate).max(Comparator.naturalOrder()).get();
+            database.get(aSeries, resolution, startDate, endDate).forEach(data ->
+                confirmed.add(new Key(resolution, data.getStartDate(), data.getEndDate())));
+        });
+
+        return aElements.stream()
+            .filter(data -> !confirmed.contains(new Key(resolutionOf.apply(data), data.getStartDate(), data.getEndDate())))
+            .toList();
+    }
+
+    private record Key(Resolution resolution, Instant startDate, Instant endDate) {
+    }
+
     @Override
     public boolean isBatchPending() {
         return pendingBatchCount.get() == 0;
@@ -58,13 +165,45 @@ public abstract class ConcurrentResolutionRepository<T extends DateRangedData> i
          * Calls the local repository to retrieve data for the given date range
          * at the given resolution.
          *
+         * @param aSeries the key of the series (partition) whose data is required
          * @param aResolution the resolution at which the data is required
          * @param aStartDate the start of the date range to be retrieved
          * @param aEndDate the end of the date range to be retrieved
          * @return the list of data elements covering the given date range at the
          * requested resolution, in ascending date order
          */
-        List<D> get(Resolution aResolution, Instant aStartDate, Instant aEndDate);
+        List<D> get(String aSeries, Resolution aResolution, Instant aStartDate, Instant aEndDate);
+
+        /**
+         * Calls the local repository to retrieve data of each of the given series, for the
+         * given date range at the given resolution. The default implementation calls
+         * {@link #get(String, Resolution, Instant, Instant)} for each series in turn.
+         * See {@link ResolutionRepository#get(Collection, Resolution, Instant, Instant)}.
+         */
+        default Map<String, List<D>> get(Collection<String> aSeries, Resolution aResolution,
+                                         Instant aStartDate, Instant aEndDate) {
+            Map<String, List<D>> result = new HashMap<>();
+            aSeries.forEach(key -> result.put(key, get(key, aResolution, aStartDate, aEndDate)));
+            return result;
+        }
+
+        /**
+         * Calls the local repository to retrieve the ranges, within the given date range,
+         * known to contain no data at the given resolution.
+         * See {@link ResolutionRepository#getEmpty(String, Resolution, Instant, Instant)}.
+         */
+        default List<DateRange> getEmpty(String aSeries, Resolution aResolution, Instant aStartDate, Instant aEndDate) {
+            return List.of();
+        }
+
+        /**
+         * Calls the local repository to record the given ranges as containing no data at
+         * the given resolution.
+         * See {@link ResolutionRepository#saveEmpty(String, Resolution, List)}.
+         */
+        default boolean saveEmpty(String aSeries, Resolution aResolution, List<DateRange> aRanges) {
+            return false;
+        }
 
         /**
          * Calls the local repository to save (insert) the given batch of data.
@@ -72,8 +211,9 @@ public abstract class ConcurrentResolutionRepository<T extends DateRangedData> i
          * For performance reasons the intention is that it persist the data without
          * using a transaction.
          *
+         * @param aSeries the key of the series (partition) to which the data belongs.
          * @param aBatch the batch of data to be inserted into the local repository.
          */
-        void saveBatch(Spliterator<D> aBatch);
+        void saveBatch(String aSeries, Spliterator<D> aBatch);
     }
 }
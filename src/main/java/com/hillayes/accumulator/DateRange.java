@@ -0,0 +1,71 @@
+package com.hillayes.accumulator;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A simple date range; used to record ranges that are known to contain no data.
+ * As with all DateRangedData, the start date is inclusive and the end date is
+ * exclusive.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class DateRange implements DateRangedData {
+    private final Instant startDate;
+    private final Instant endDate;
+
+    public DateRange(Instant aStartDate, Instant aEndDate) {
+        startDate = aStartDate;
+        endDate = aEndDate;
+    }
+
+    /**
+     * Returns the given ranges in ascending date order, with any that overlap, or
+     * are contiguous, merged into a single range.
+     *
+     * @param aRanges the ranges to be merged.
+     * @return the merged ranges, in ascending date order.
+     */
+    public static List<DateRange> merge(Collection<DateRange> aRanges) {
+        List<DateRange> result = new ArrayList<>(aRanges.size());
+        aRanges.stream().sorted().forEach(range -> {
+            int last = result.size() - 1;
+            if ((last >= 0) && (!range.getStartDate().isAfter(result.get(last).getEndDate()))) {
+                DateRange previous = result.get(last);
+                if (range.getEndDate().isAfter(previous.getEndDate())) {
+                    result.set(last, new DateRange(previous.getStartDate(), range.getEndDate()));
+                }
+            } else {
+                result.add(range);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Tests whether the given date range is wholly covered by the given merged ranges.
+     *
+     * @param aMerged the ranges, as returned by {@link #merge(Collection)}.
+     * @param aStartDate the start of the range to be tested, inclusive.
+     * @param aEndDate the end of the range to be tested, exclusive.
+     * @return true if the given range is wholly covered.
+     */
+    public static boolean covers(List<DateRange> aMerged, Instant aStartDate, Instant aEndDate) {
+        for (DateRange range : aMerged) {
+            if (range.getStartDate().isAfter(aStartDate)) {
+                return false;
+            }
+            if (range.getEndDate().isAfter(aStartDate)) {
+                return !range.getEndDate().isBefore(aEndDate);
+            }
+        }
+        return false;
+    }
+}
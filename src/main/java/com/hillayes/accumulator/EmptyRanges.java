@@ -0,0 +1,80 @@
+package com.hillayes.accumulator;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * A compact, in-memory record of the date ranges, of each series and resolution, that
+ * are known to contain no data. Contiguous and overlapping ranges are merged as they are added;
+ * so a long, sparse series is held as a handful of ranges, rather than an element for
+ * each of its empty periods.
+ * <p>
+ * Intended for use by implementations of {@link ResolutionRepository#getEmpty} and
+ * {@link ResolutionRepository#saveEmpty}.
+ */
+public class EmptyRanges {
+    private final Map<Key, NavigableMap<Instant, Instant>> ranges = new HashMap<>();
+
+    /**
+     * Records the given ranges, of the given series and resolution, as containing no data.
+     *
+     * @param aSeries the key of the series to which the ranges belong.
+     * @param aResolution the resolution of the empty ranges.
+     * @param aRanges the empty ranges.
+     */
+    public synchronized void add(String aSeries, Resolution aResolution, Collection<DateRange> aRanges) {
+        NavigableMap<Instant, Instant> map = ranges.computeIfAbsent(new Key(aSeries, aResolution), k -> new TreeMap<>());
+        aRanges.forEach(range -> {
+            Instant start = range.getStartDate();
+            Instant end = range.getEndDate();
+
+            // merge with any range that starts before, and meets or overlaps, this one
+            Map.Entry<Instant, Instant> floor = map.floorEntry(start);
+            if ((floor != null) && (!floor.getValue().isBefore(start))) {
+                start = floor.getKey();
+                end = floor.getValue().isAfter(end) ? floor.getValue() : end;
+            }
+
+            // merge with any ranges that start within this one
+            Iterator<Map.Entry<Instant, Instant>> following = map.subMap(start, true, end, true).entrySet().iterator();
+            while (following.hasNext()) {
+                Instant followingEnd = following.next().getValue();
+                end = followingEnd.isAfter(end) ? followingEnd : end;
+                following.remove();
+            }
+
+            map.put(start, end);
+        });
+    }
+
+    /**
+     * Returns the empty ranges, of the given series and resolution, that overlap the given
+     * date range; clipped to that date range and in ascending date order.
+     *
+     * @param aSeries the key of the series to which the ranges belong.
+     * @param aResolution the resolution of the empty ranges.
+     * @param aStartDate the start of the date range, inclusive.
+     * @param aEndDate the end of the date range, exclusive.
+     * @return the empty ranges within the given date range.
+     */
+    public synchronized List<DateRange> get(String aSeries, Resolution aResolution,
+                                            Instant aStartDate, Instant aEndDate) {
+        NavigableMap<Instant, Instant> map = ranges.get(new Key(aSeries, aResolution));
+        if (map == null) {
+            return List.of();
+        }
+
+        Instant from = Optional.ofNullable(map.floorKey(aStartDate)).orElse(aStartDate);
+        List<DateRange> result = new ArrayList<>();
+        map.subMap(from, true, aEndDate, false).forEach((start, end) -> {
+            if (end.isAfter(aStartDate)) {
+                result.add(new DateRange(start.isBefore(aStartDate) ? aStartDate : start,
+                    end.isAfter(aEndDate) ? aEndDate : end));
+            }
+        });
+        return result;
+    }
+
+    private record Key(String series, Resolution resolution) {
+    }
+}
@@ -0,0 +1,219 @@
+package com.hillayes.accumulator;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The plan by which the {@link ResolutionLoader} loads the data of one or more series,
+ * at a given resolution, over a given date range. Each plan records the data already
+ * held in the local repository, and the ranges (requirements) that must be accumulated
+ * from a lower resolution. Requirements of the same series that touch or overlap are
+ * satisfied by a single child plan at the cheapest of the resolution's sources; and so
+ * on down to the warehouse.
+ * <p>
+ * The whole plan is computed before any data is fetched from the warehouse. So it can
+ * be explained, without being executed, to show what a load will cost.
+ *
+ * @param <T> the class of DateRangedData to be loaded.
+ */
+class LoadPlan<T extends DateRangedData> {
+    /**
+     * The ways in which a requirement is satisfied from the lower resolution.
+     */
+    enum Step {
+        /**
+         * Whole periods missing from the local repository; to be accumulated and persisted.
+         */
+        GAP,
+
+        /**
+         * A partial leading or trailing period; to be accumulated but not persisted.
+         */
+        PARTIAL,
+
+        /**
+         * A cached partial period; to be extended with the data following its watermark.
+         */
+        EXTEND
+    }
+
+    /**
+     * The keys of the series to be loaded.
+     */
+    final List<String> series;
+
+    /**
+     * The resolution to be loaded. Null if the data is to be fetched from the warehouse.
+     */
+    final Resolution resolution;
+
+    final Instant startDate;
+    final Instant endDate;
+
+    /**
+     * The elements already available, keyed on series: those read from the local repository,
+     * the cached partials and the running aggregates.
+     */
+    final Map<String, List<T>> known = new HashMap<>();
+
+    /**
+     * The ranges known to be empty, keyed on series.
+     */
+    final Map<String, List<DateRange>> knownEmpty = new HashMap<>();
+
+    /**
+     * The ranges to be accumulated from the lower resolution.
+     */
+    final List<Requirement<T>> requirements = new ArrayList<>();
+
+    /**
+     * The plans, at a lower resolution, by which the requirements are satisfied.
+     */
+    final List<LoadPlan<T>> children = new ArrayList<>();
+
+    /**
+     * Whether a fetch plan is to be streamed into the accumulation of its only requirement.
+     */
+    boolean streamed;
+
+    int read;
+    int cached;
+    int running;
+
+    /**
+     * The time taken to execute the plan, in milliseconds. Negative if not yet executed.
+     */
+    long duration = -1;
+
+    LoadPlan(List<String> aSeries, Resolution aResolution, Instant aStartDate, Instant aEndDate) {
+        series = aSeries;
+        resolution = aResolution;
+        startDate = aStartDate;
+        endDate = aEndDate;
+    }
+
+    /**
+     * Tests whether the plan is a fetch from the warehouse.
+     */
+    boolean isFetch() {
+        return resolution == null;
+    }
+
+    /**
+     * Returns the cost of the data this plan will fetch from the warehouse; as the number
+     * of seconds fetched, summed across all series.
+     */
+    long fetchCost() {
+        if (isFetch()) {
+            return Duration.between(startDate, endDate).getSeconds() * series.size();
+        }
+        return children.stream().mapToLong(LoadPlan::fetchCost).sum();
+    }
+
+    /**
+     * Returns the child plan by which the given requirement is satisfied.
+     */
+    LoadPlan<T> source(Requirement<T> aRequirement) {
+        if (aRequirement.plan != null) {
+            return aRequirement.plan;
+        }
+
+        DateRange range = aRequirement.range;
+        return children.stream()
+            .filter(child -> child.series.equals(aRequirement.series))
+            .filter(child -> !child.startDate.isAfter(range.getStartDate()))
+            .filter(child -> !child.endDate.isBefore(range.getEndDate()))
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("No plan for requirement " + range));
+    }
+
+    /**
+     * Returns a readable description of the plan; one line for each plan and requirement,
+     * indented by their depth. If the plan has been executed, the time taken by each plan
+     * is included.
+     */
+    String explain() {
+        StringBuilder result = new StringBuilder();
+        explain(result, "");
+        return result.toString();
+    }
+
+    private void explain(StringBuilder aBuilder, String aIndent) {
+        aBuilder.append(aIndent);
+        if (isFetch()) {
+            aBuilder.append("FETCH [").append(startDate).append(", ").append(endDate)
+                .append(") series: ").append(series.size());
+            if (streamed) {
+                aBuilder.append(", streamed");
+            }
+        } else {
+            aBuilder.append("LOAD ").append(resolution).append(" [").append(startDate).append(", ").append(endDate)
+                .append(") series: ").append(series.size())
+                .append(", read: ").append(read)
+                .append(", cached: ").append(cached)
+                .append(", running: ").append(running);
+        }
+        if (duration >= 0) {
+            aBuilder.append(", duration: ").append(duration).append("ms");
+        }
+        aBuilder.append('\n');
+
+        String indent = aIndent + "  ";
+        requirements.forEach(requirement -> aBuilder.append(indent)
+            .append(requirement.step).append(" [")
+            .append(requirement.range.getStartDate()).append(", ").append(requirement.range.getEndDate())
+            .append(") series: ").append(requirement.series.size())
+            .append('\n'));
+        children.forEach(child -> child.explain(aBuilder, indent));
+    }
+
+    /**
+     * A range, of one or more series, to be accumulated from the lower resolution.
+     */
+    static class Requirement<T extends DateRangedData> {
+        final Step step;
+        final List<String> series;
+        final DateRange range;
+
+        /**
+         * The start of the partial period to which the accumulated data belongs.
+         */
+        final Instant partialStart;
+
+        /**
+         * The cached partials to be extended, keyed on series. Only used by EXTEND.
+         */
+        final Map<String, T> extended;
+
+        /**
+         * The source from which the cached partials were accumulated; from which they must
+         * also be extended. Only used by EXTEND.
+         */
+        final Resolution extendFrom;
+
+        /**
+         * The child plan by which the requirement is satisfied, if it has a plan of its own.
+         * Null if it shares the plan of the requirements with which it was merged.
+         */
+        LoadPlan<T> plan;
+
+        Requirement(Step aStep, List<String> aSeries, DateRange aRange,
+                    Instant aPartialStart, Map<String, T> aExtended) {
+            this(aStep, aSeries, aRange, aPartialStart, aExtended, null);
+        }
+
+        Requirement(Step aStep, List<String> aSeries, DateRange aRange,
+                    Instant aPartialStart, Map<String, T> aExtended, Resolution aExtendFrom) {
+            step = aStep;
+            series = aSeries;
+            range = aRange;
+            partialStart = aPartialStart;
+            extended = aExtended;
+            extendFrom = aExtendFrom;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.hillayes.accumulator;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The data loaded so far by a progressive load; see
+ * {@link ResolutionLoader#loadProgressive(java.util.Collection, Resolution, java.time.Instant,
+ * java.time.Instant, java.util.function.Consumer)}.
+ * <p>
+ * The data of each series is in ascending date order, but may have gaps. The ranges of
+ * those gaps, still to be accumulated from the lower resolutions (and possibly fetched
+ * from the warehouse), are given as pending. Once the load is complete there are no
+ * pending ranges.
+ *
+ * @param <T> the class of DateRangedData being loaded.
+ */
+@Getter
+@ToString
+public class LoadSnapshot<T extends DateRangedData> {
+    /**
+     * The data loaded so far, keyed on series.
+     */
+    private final Map<String, List<T>> data;
+
+    /**
+     * The date ranges still to be loaded, keyed on series. Only the series with pending
+     * ranges are included.
+     */
+    private final Map<String, List<DateRange>> pending;
+
+    public LoadSnapshot(Map<String, List<T>> aData, Map<String, List<DateRange>> aPending) {
+        data = aData;
+        pending = aPending;
+    }
+
+    /**
+     * Tests whether the load is complete; i.e. there are no pending ranges.
+     */
+    public boolean isComplete() {
+        return pending.isEmpty();
+    }
+}
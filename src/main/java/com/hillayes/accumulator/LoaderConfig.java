@@ -0,0 +1,65 @@
+package com.hillayes.accumulator;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * The optional behaviours of the {@link ResolutionLoader}. The defaults disable all
+ * optional behaviours, so that a loader constructed without a configuration behaves
+ * as a simple, synchronous loader.
+ */
+@Builder
+@Getter
+@ToString
+public class LoaderConfig {
+    /**
+     * The number of (low priority) threads on which the ranges adjacent to each load
+     * will be read ahead. Zero disables read-ahead.
+     */
+    @Builder.Default
+    private final int readAheadThreads = 0;
+
+    /**
+     * The max number of read-ahead loads that may be queued, or in progress, at any
+     * one time. Read-aheads requested beyond this budget are discarded.
+     */
+    @Builder.Default
+    private final int readAheadBudget = 4;
+
+    /**
+     * The max number of resolution periods a single read-ahead may cover. Loads that
+     * cover more periods will have their read-ahead range truncated.
+     */
+    @Builder.Default
+    private final int readAheadMaxPeriods = 31;
+
+    /**
+     * The max number of partial leading and trailing elements to be cached, so that
+     * a later request can extend them with only the data that has since arrived. Zero
+     * disables the cache.
+     */
+    @Builder.Default
+    private final int partialCacheSize = 0;
+
+    /**
+     * The cost of a single request to a lower resolution, expressed as the span of data
+     * that could be retrieved in the same time. Gaps separated by a covered run shorter
+     * than this are filled by a single request; the covered run being retrieved again and
+     * discarded. Zero disables the coalescing of gaps.
+     */
+    @Builder.Default
+    private final Duration requestCost = Duration.ZERO;
+
+    /**
+     * The max number of elements, of the lowest resolution and summed across all series,
+     * that a single load should require at once. Loads whose range would require more are
+     * performed in successive windows, aligned to the boundaries of the requested resolution;
+     * the intermediate data of each window being released before the next is loaded. Zero
+     * disables windowing.
+     */
+    @Builder.Default
+    private final int windowSize = 0;
+}
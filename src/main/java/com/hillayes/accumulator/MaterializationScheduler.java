@@ -0,0 +1,188 @@
+package com.hillayes.accumulator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Materializes each period of the given resolutions, in the background, as soon as
+ * the period closes. So the first request for a period, after it has closed, will
+ * find its data already accumulated and persisted.
+ * <p>
+ * When the periods of several resolutions close at the same instant (e.g. the last
+ * HOUR of a DAY), they are materialized in one task; in ascending order of their
+ * period length. So each can be accumulated from the one materialized before it.
+ * <p>
+ * The number of materializations in progress at any one time is bounded, to limit
+ * the load placed on the warehouse at period boundaries.
+ * <p>
+ * The periods are materialized for each of the given series; each series in a task
+ * of its own.
+ *
+ * @param <T> the class of DateRangedData to be materialized.
+ */
+@Slf4j
+public class MaterializationScheduler<T extends DateRangedData> {
+    private final ResolutionLoader<T> loader;
+    private final List<String> series;
+    private final List<Resolution> resolutions;
+    private final Duration settleDelay;
+    private final Semaphore concurrency;
+
+    private ScheduledExecutorService timer;
+    private ExecutorService executorService;
+
+    /**
+     * Creates a scheduler to materialize the periods of the default series.
+     *
+     * @param aLoader the loader by which each closed period will be materialized.
+     * @param aResolutions the resolutions whose periods are to be materialized.
+     * @param aSettleDelay the delay after each period closes before it is materialized;
+     * allowing time for the period's data to arrive in the warehouse.
+     * @param aMaxConcurrency the max number of materializations in progress at any one time.
+     */
+    public MaterializationScheduler(ResolutionLoader<T> aLoader,
+                                    List<Resolution> aResolutions,
+                                    Duration aSettleDelay,
+                                    int aMaxConcurrency) {
+        this(aLoader, List.of(ResolutionRepository.DEFAULT_SERIES), aResolutions, aSettleDelay, aMaxConcurrency);
+    }
+
+    /**
+     * @param aLoader the loader by which each closed period will be materialized.
+     * @param aSeries the keys of the series whose periods are to be materialized.
+     * @param aResolutions the resolutions whose periods are to be materialized.
+     * @param aSettleDelay the delay after each period closes before it is materialized;
+     * allowing time for the period's data to arrive in the warehouse.
+     * @param aMaxConcurrency the max number of materializations in progress at any one time.
+     */
+    public MaterializationScheduler(ResolutionLoader<T> aLoader,
+                                    List<String> aSeries,
+                                    List<Resolution> aResolutions,
+                                    Duration aSettleDelay,
+                                    int aMaxConcurrency) {
+        loader = aLoader;
+        series = List.copyOf(aSeries);
+        resolutions = List.copyOf(aResolutions);
+        settleDelay = aSettleDelay;
+        concurrency = new Semaphore(aMaxConcurrency);
+    }
+
+    /**
+     * Starts the scheduling of materializations; beginning with the periods that are
+     * currently open.
+     */
+    public synchronized void start() {
+        if (timer != null) {
+            return;
+        }
+
+        timer = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+            .name("materialization-timer")
+            .daemon(true)
+            .factory());
+        executorService = Executors.newVirtualThreadPerTaskExecutor();
+
+        scheduleNext(Instant.now());
+    }
+
+    /**
+     * Stops the scheduling of materializations. Any in progress will be interrupted.
+     */
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.shutdownNow();
+            executorService.shutdownNow();
+            timer = null;
+            executorService = null;
+        }
+    }
+
+    /**
+     * Schedules the materialization of the periods that next close after the given instant.
+     */
+    private synchronized void scheduleNext(Instant aAfter) {
+        if (timer == null) {
+            return;
+        }
+
+        // find the earliest instant at which a period closes
+        Instant close = resolutions.stream()
+            .map(resolution -> resolution.next(aAfter))
+            .min(Comparator.naturalOrder())
+            .orElse(null);
+        if (close == null) {
+            return;
+        }
+
+        long delay = Duration.between(Instant.now(), close.plus(settleDelay)).toMillis();
+        log.debug("Scheduling materialization [close: {}, delay: {}ms]", close, delay);
+        timer.schedule(() -> {
+            // a failure mustn't end the chain of schedules
+            try {
+                materialize(close);
+            } catch (Exception e) {
+                log.warn("Failed to submit materialization [close: {}]", close, e);
+            } finally {
+                scheduleNext(close);
+            }
+        }, Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Submits the materialization of all periods that close at the given instant.
+     */
+    private void materialize(Instant aClose) {
+        // gather the periods that close at the given instant
+        List<Period> periods = new ArrayList<>();
+        resolutions.forEach(resolution -> {
+            Instant start = resolution.roundDown(aClose.minusNanos(1));
+            if (resolution.next(start).equals(aClose)) {
+                periods.add(new Period(resolution, start, aClose));
+            }
+        });
+
+        // materialize from the shortest period to the longest
+        periods.sort(Comparator.comparing(Period::length));
+
+        submit(periods);
+    }
+
+    private synchronized void submit(List<Period> aPeriods) {
+        if (executorService == null) {
+            return;
+        }
+
+        series.forEach(key -> executorService.execute(() -> {
+            try {
+                concurrency.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            try {
+                aPeriods.forEach(period -> {
+                    log.debug("Materializing closed period [series: {}, resolution: {}, start: {}, end: {}]",
+                        key, period.resolution(), period.startDate(), period.endDate());
+                    loader.load(key, period.resolution(), period.startDate(), period.endDate());
+                });
+            } catch (Exception e) {
+                log.warn("Failed to materialize closed periods [series: {}]", key, e);
+            } finally {
+                concurrency.release();
+            }
+        }));
+    }
+
+    private record Period(Resolution resolution, Instant startDate, Instant endDate) {
+        Duration length() {
+            return Duration.between(startDate, endDate);
+        }
+    }
+}
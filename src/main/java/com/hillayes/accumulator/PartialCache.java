@@ -0,0 +1,67 @@
+package com.hillayes.accumulator;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of the partial leading and trailing elements
+ * built by the {@link ResolutionLoader}. Each element is keyed on its series, resolution
+ * and start date, and its end date records the watermark to which it was accumulated. So
+ * a later request for the same partial period, extending beyond that watermark, need
+ * only accumulate the data that follows the watermark.
+ * <p>
+ * Each element is cached with the grain at which it was accumulated; the lowest resolution
+ * of the source from which it was built. As a resolution may be built from sources whose
+ * lowest resolutions differ, the watermark is only meaningful at that grain.
+ *
+ * @param <T> the class of DateRangedData to be cached.
+ */
+class PartialCache<T extends DateRangedData> {
+    private final Map<Key, Partial<T>> entries;
+
+    PartialCache(int aMaxEntries) {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Partial<T>> aEldest) {
+                return size() > aMaxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached partial element, of the given series and resolution, that starts
+     * at the given date; with the grain at which it was accumulated. Null if no such element
+     * is cached.
+     */
+    synchronized Partial<T> get(String aSeries, Resolution aResolution, Instant aStartDate) {
+        return entries.get(new Key(aSeries, aResolution, aStartDate));
+    }
+
+    /**
+     * Caches the given partial element, of the given series and resolution, replacing any
+     * element of the same series, resolution and start date.
+     *
+     * @param aSeries the key of the series to which the element belongs.
+     * @param aResolution the resolution of the element.
+     * @param aElement the partial element.
+     * @param aGrain the lowest resolution of the data from which the element was accumulated.
+     */
+    synchronized void put(String aSeries, Resolution aResolution, T aElement, Resolution aGrain) {
+        entries.put(new Key(aSeries, aResolution, aElement.getStartDate()), new Partial<>(aElement, aGrain));
+    }
+
+    /**
+     * A cached partial element, and the lowest resolution of the data from which it was
+     * accumulated. The element's watermark is the last boundary of that grain before its
+     * end date.
+     */
+    record Partial<T extends DateRangedData>(T element, Resolution grain) {
+        Instant watermark() {
+            return grain.roundDown(element.getEndDate());
+        }
+    }
+
+    private record Key(String series, Resolution resolution, Instant startDate) {
+    }
+}
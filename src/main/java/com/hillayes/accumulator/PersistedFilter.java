@@ -0,0 +1,109 @@
+package com.hillayes.accumulator;
+
+import java.time.Instant;
+
+/**
+ * A probabilistic record of the elements known to have been persisted; keyed on their
+ * resolution, series and date range. The resolution is part of the key as the periods
+ * of different resolutions may coincide (e.g. the DAYs of CalendarResolution and
+ * DefaultResolution); so the date range alone doesn't identify an element.
+ * <p>
+ * The filter is a bloom filter. So a test for an element that has been added will always
+ * succeed; but a test for one that has not may also succeed, at the configured false
+ * positive rate. So an element reported as persisted must be confirmed by the database
+ * before it is dropped; only an element reported as not persisted is certainly new.
+ * <p>
+ * To bound its memory, the filter is held in two generations. When the current generation
+ * reaches its capacity, it replaces the previous generation, and a new current generation
+ * is started. So elements not added for two generations are forgotten; any later attempt
+ * to persist them is passed to the database, which ignores the duplicates.
+ */
+class PersistedFilter {
+    private final int capacity;
+    private final int bitCount;
+    private final int hashCount;
+
+    private long[] current;
+    private long[] previous;
+    private int currentCount;
+
+    /**
+     * @param aCapacity the number of elements held in each generation.
+     * @param aFalsePositiveRate the probability that an element not added is reported as
+     * persisted; when the generation is at capacity.
+     */
+    PersistedFilter(int aCapacity, double aFalsePositiveRate) {
+        capacity = aCapacity;
+        bitCount = (int) Math.max(64, Math.ceil(-aCapacity * Math.log(aFalsePositiveRate) / (Math.log(2) * Math.log(2))));
+        hashCount = (int) Math.max(1, Math.round((double) bitCount / aCapacity * Math.log(2)));
+
+        current = new long[(bitCount + 63) / 64];
+        previous = new long[current.length];
+    }
+
+    /**
+     * Tests whether the element of the given resolution, series and date range may have
+     * been persisted.
+     *
+     * @return false if the element has certainly not been persisted.
+     */
+    synchronized boolean mightContain(Resolution aResolution, String aSeries, Instant aStartDate, Instant aEndDate) {
+        long hash = hash(aResolution, aSeries, aStartDate, aEndDate);
+        return (contains(current, hash)) || (contains(previous, hash));
+    }
+
+    /**
+     * Records the element of the given resolution, series and date range as persisted.
+     */
+    synchronized void add(Resolution aResolution, String aSeries, Instant aStartDate, Instant aEndDate) {
+        if (currentCount >= capacity) {
+            previous = current;
+            current = new long[previous.length];
+            currentCount = 0;
+        }
+
+        long hash = hash(aResolution, aSeries, aStartDate, aEndDate);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            int bit = index(hash1 + i * hash2);
+            current[bit >>> 6] |= 1L << bit;
+        }
+        currentCount++;
+    }
+
+    private boolean contains(long[] aBits, long aHash) {
+        int hash1 = (int) aHash;
+        int hash2 = (int) (aHash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            int bit = index(hash1 + i * hash2);
+            if ((aBits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(int aCombinedHash) {
+        return ((aCombinedHash < 0) ? ~aCombinedHash : aCombinedHash) % bitCount;
+    }
+
+    private static long hash(Resolution aResolution, String aSeries, Instant aStartDate, Instant aEndDate) {
+        // not the name; the resolutions of different classes may share a name
+        long result = mix(aResolution.hashCode());
+        result = mix(result * 31 + aSeries.hashCode());
+        result = mix(result * 31 + aStartDate.getEpochSecond());
+        result = mix(result * 31 + aStartDate.getNano());
+        result = mix(result * 31 + aEndDate.getEpochSecond());
+        return mix(result * 31 + aEndDate.getNano());
+    }
+
+    /**
+     * The SplitMix64 finalizer; spreads the bits of the given value across the result.
+     */
+    private static long mix(long aValue) {
+        long result = (aValue ^ (aValue >>> 30)) * 0xbf58476d1ce4e5b9L;
+        result = (result ^ (result >>> 27)) * 0x94d049bb133111ebL;
+        return result ^ (result >>> 31);
+    }
+}
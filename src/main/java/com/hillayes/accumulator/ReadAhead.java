@@ -0,0 +1,136 @@
+package com.hillayes.accumulator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Warms the ranges adjacent to a completed load, in anticipation of the client paging
+ * forward or backward through time. The ranges are loaded, at the same resolution, on
+ * low priority threads; so any gaps in the lower resolutions are filled as a matter of
+ * course.
+ * <p>
+ * A budget limits the number of read-aheads queued or in progress. Any read-ahead
+ * requested beyond that budget is discarded, rather than queued, as it is only a guess
+ * at what the client may want next.
+ */
+@Slf4j
+class ReadAhead {
+    private final ExecutorService executorService;
+    private final Semaphore budget;
+    private final int maxPeriods;
+
+    ReadAhead(LoaderConfig aConfig) {
+        executorService = Executors.newFixedThreadPool(aConfig.getReadAheadThreads(),
+            Thread.ofPlatform()
+                .name("read-ahead-", 0)
+                .daemon(true)
+                .priority(Thread.MIN_PRIORITY)
+                .factory());
+        budget = new Semaphore(aConfig.getReadAheadBudget());
+        maxPeriods = aConfig.getReadAheadMaxPeriods();
+    }
+
+    /**
+     * Submits the read-ahead of the ranges preceding and following the given range, at
+     * the given resolution. Each adjacent range is the same length as the given range;
+     * subject to the configured max number of periods. The following range will not
+     * extend beyond the given limit (typically the current time).
+     *
+     * @param aResolution the resolution at which the given range was loaded.
+     * @param aStartDate the start of the range loaded, inclusive.
+     * @param aEndDate the end of the range loaded, exclusive.
+     * @param aLimit the date beyond which data is not to be read.
+     * @param aLoader the function to load a range.
+     */
+    void submit(Resolution aResolution, Instant aStartDate, Instant aEndDate,
+                Instant aLimit, RangeLoader aLoader) {
+        Instant next = advance(aResolution, aEndDate, aStartDate, aEndDate);
+        if (aEndDate.isBefore(aLimit)) {
+            submit(aResolution, aEndDate, next.isAfter(aLimit) ? aLimit : next, aLoader);
+        }
+
+        Instant previous = retreat(aResolution, aStartDate, aStartDate, aEndDate);
+        if (previous.isBefore(aStartDate)) {
+            submit(aResolution, previous, aStartDate, aLoader);
+        }
+    }
+
+    private void submit(Resolution aResolution, Instant aStartDate, Instant aEndDate, RangeLoader aLoader) {
+        if (!budget.tryAcquire()) {
+            log.debug("Read-ahead budget exhausted [resolution: {}, start: {}, end: {}]",
+                aResolution, aStartDate, aEndDate);
+            return;
+        }
+
+        log.debug("Reading ahead [resolution: {}, start: {}, end: {}]", aResolution, aStartDate, aEndDate);
+        try {
+            executorService.execute(() -> {
+                try {
+                    aLoader.load(aResolution, aStartDate, aEndDate);
+                } catch (Exception e) {
+                    log.warn("Read-ahead failed [resolution: {}, start: {}, end: {}]",
+                        aResolution, aStartDate, aEndDate, e);
+                } finally {
+                    budget.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the read-ahead has been shut down
+            budget.release();
+            log.debug("Read-ahead discarded [resolution: {}, start: {}, end: {}]",
+                aResolution, aStartDate, aEndDate);
+        } catch (RuntimeException e) {
+            budget.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Shuts down the read-ahead threads, interrupting any read-ahead in progress. Any
+     * read-ahead submitted afterwards is discarded.
+     */
+    void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Returns the date that lies the same distance after the given date as the given
+     * range's length - but no more than the configured max number of periods.
+     */
+    private Instant advance(Resolution aResolution, Instant aFrom, Instant aStartDate, Instant aEndDate) {
+        Instant result = aFrom.plus(Duration.between(aStartDate, aEndDate));
+        Instant limit = aFrom;
+        for (int i = 0; (i < maxPeriods) && (limit.isBefore(result)); i++) {
+            limit = aResolution.next(limit);
+        }
+        return limit.isBefore(result) ? limit : result;
+    }
+
+    /**
+     * Returns the date that lies the same distance before the given date as the given
+     * range's length - but no more than the configured max number of periods.
+     */
+    private Instant retreat(Resolution aResolution, Instant aFrom, Instant aStartDate, Instant aEndDate) {
+        Instant result = aFrom.minus(Duration.between(aStartDate, aEndDate));
+        Instant limit = aFrom;
+        for (int i = 0; (i < maxPeriods) && (limit.isAfter(result)); i++) {
+            // step back one period - from an aligned date, or to the start of the current one
+            Instant rounded = aResolution.roundDown(limit);
+            limit = rounded.equals(limit) ? aResolution.roundDown(limit.minusNanos(1)) : rounded;
+        }
+        return limit.isAfter(result) ? limit : result;
+    }
+
+    /**
+     * The function by which ReadAhead loads a range of data.
+     */
+    interface RangeLoader {
+        void load(Resolution aResolution, Instant aStartDate, Instant aEndDate);
+    }
+}
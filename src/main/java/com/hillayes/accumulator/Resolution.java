@@ -23,6 +23,7 @@
 package com.hillayes.accumulator;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -43,6 +44,21 @@ public interface Resolution {
      */
     Optional<Resolution> getLower();
 
+    /**
+     * Returns the Resolutions from which this one may be accumulated, in order of
+     * preference. The periods of each must be an exact division of those of this
+     * Resolution. The ResolutionLoader accumulates from the first, unless another
+     * is found to hold more of the data required.
+     * <p>
+     * The default implementation returns only the immediate lower Resolution; or an
+     * empty list if this is the lowest Resolution.
+     *
+     * @return the Resolutions from which this one may be accumulated.
+     */
+    default List<Resolution> getSources() {
+        return getLower().map(List::of).orElse(List.of());
+    }
+
     /**
      * Rounds the given Instant DOWN to this Resolution.
      *
@@ -24,11 +24,14 @@ package com.hillayes.accumulator;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.ListIterator;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * A utility to load data at a given resolution over a given date range. It relies on
@@ -44,15 +47,90 @@ import java.util.ListIterator;
  * <p>
  * IMPORTANT: The start dates mentioned in this class are inclusive. Whereas, the end
  * dates are exclusive.
+ * <p>
+ * A loader holds the threads on which asynchronous loads and read-aheads are performed;
+ * so it must be closed once it is no longer required.
  *
  * @param <T> the class of DateRangedData to be loaded.
  */
 @Slf4j
-public class ResolutionLoader<T extends DateRangedData> {
+public class ResolutionLoader<T extends DateRangedData> implements AutoCloseable {
     private final ResolutionRepository<T> repository;
 
+    /**
+     * Reads ahead the ranges adjacent to each load. Null if read-ahead is disabled.
+     */
+    private final ReadAhead readAhead;
+
+    /**
+     * The running aggregates of the open periods, maintained by ingestion. Null if
+     * ingestion has not been started.
+     */
+    private volatile RunningAggregates<T> runningAggregates;
+
+    /**
+     * The cache of partial leading and trailing elements. Null if disabled.
+     */
+    private final PartialCache<T> partialCache;
+
+    /**
+     * The span of covered data below which the gaps either side are filled by a single
+     * request. Zero if gaps are not coalesced.
+     */
+    private final Duration requestCost;
+
+    /**
+     * The max number of lowest resolution elements a load may require at once. Zero if
+     * loads are not to be windowed.
+     */
+    private final int windowSize;
+
+    /**
+     * The virtual threads on which asynchronous loads are performed.
+     */
+    private final ExecutorService asyncExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
     public ResolutionLoader(ResolutionRepository<T> aRepository) {
+        this(aRepository, LoaderConfig.builder().build());
+    }
+
+    public ResolutionLoader(ResolutionRepository<T> aRepository, LoaderConfig aConfig) {
         repository = aRepository;
+        readAhead = (aConfig.getReadAheadThreads() > 0) ? new ReadAhead(aConfig) : null;
+        partialCache = (aConfig.getPartialCacheSize() > 0) ? new PartialCache<>(aConfig.getPartialCacheSize()) : null;
+        requestCost = aConfig.getRequestCost();
+        windowSize = aConfig.getWindowSize();
+    }
+
+    /**
+     * Shuts down the threads on which asynchronous loads and read-aheads are performed.
+     * Any asynchronous load still in progress is abandoned, as though cancelled; and any
+     * asynchronous load requested afterwards fails with a RejectedExecutionException.
+     * Synchronous loads may still be performed, but without read-ahead.
+     */
+    @Override
+    public void close() {
+        asyncExecutor.shutdownNow();
+        if (readAhead != null) {
+            readAhead.shutdown();
+        }
+    }
+
+    /**
+     * Starts the push-based ingestion of data of the lowest resolution. The returned
+     * RunningAggregates will accept new data as it arrives and maintain the aggregates
+     * of the open periods of each resolution, up to the given highest. Subsequent loads
+     * will take their trailing, partial period from those running aggregates, rather
+     * than accumulate it from the lower resolutions.
+     *
+     * @param aHighest the highest resolution for which running aggregates are to be maintained.
+     * @return the RunningAggregates to which new data is to be passed.
+     */
+    public synchronized RunningAggregates<T> startIngestion(Resolution aHighest) {
+        if (runningAggregates == null) {
+            runningAggregates = new RunningAggregates<>(this, repository, aHighest);
+        }
+        return runningAggregates;
     }
 
     /**
@@ -65,6 +143,10 @@ public class ResolutionLoader<T extends DateRangedData> {
      * resolutions, but marked with the given resolution. So, for example, a leading
      * or trailing, data element of the resolution HOUR may contain only part of that
      * hour's data.
+     * <p>
+     * If read-ahead is configured, the ranges immediately before and after the given
+     * range will be loaded in the background; in anticipation of the client paging
+     * through time.
      *
      * @param aResolution the resolution at which the data is required
      * @param aStartDate the start of the date range to be retrieved, inclusive.
@@ -73,143 +155,1079 @@ public class ResolutionLoader<T extends DateRangedData> {
      * resolution, in ascending date order
      */
     public List<T> load(Resolution aResolution, Instant aStartDate, Instant aEndDate) {
+        return load(ResolutionRepository.DEFAULT_SERIES, aResolution, aStartDate, aEndDate);
+    }
+
+    /**
+     * As {@link #load(Resolution, Instant, Instant)}, but returns the data of the series
+     * (partition) identified by the given key.
+     *
+     * @param aSeries the key of the series whose data is required
+     * @param aResolution the resolution at which the data is required
+     * @param aStartDate the start of the date range to be retrieved, inclusive.
+     * @param aEndDate the end of the date range to be retrieved, exclusive.
+     * @return the list of data elements covering the given date range at the requested
+     * resolution, in ascending date order
+     */
+    public List<T> load(String aSeries, Resolution aResolution, Instant aStartDate, Instant aEndDate) {
+        return load(List.of(aSeries), aResolution, aStartDate, aEndDate).get(aSeries);
+    }
+
+    /**
+     * As {@link #load(Resolution, Instant, Instant)}, but returns the data of each of the
+     * series (partitions) identified by the given keys.
+     * <p>
+     * The series are loaded together. The repository is read once, at each resolution,
+     * for all series; and any gap shared by several series is filled by a single request
+     * to the lower resolution, and so on down to the warehouse. So loading many series
+     * costs a handful of large requests, rather than many small ones.
+     * <p>
+     * The whole load is planned before any data is fetched; the partial leading and
+     * trailing periods, and the gaps, that touch one another are filled by a single
+     * request to the lower resolution. See {@link #explain(Collection, Resolution, Instant, Instant)}.
+     *
+     * @param aSeries the keys of the series whose data is required
+     * @param aResolution the resolution at which the data is required
+     * @param aStartDate the start of the date range to be retrieved, inclusive.
+     * @param aEndDate the end of the date range to be retrieved, exclusive.
+     * @return the lists of data elements covering the given date range at the requested
+     * resolution, in ascending date order, keyed on series.
+     */
+    public Map<String, List<T>> load(Collection<String> aSeries, Resolution aResolution,
+                                     Instant aStartDate, Instant aEndDate) {
+        return load(List.copyOf(new LinkedHashSet<>(aSeries)), aResolution, aStartDate, aEndDate, null);
+    }
+
+    /**
+     * As {@link #load(Collection, Resolution, Instant, Instant)}, but executes the given plan,
+     * if any, rather than planning the load again.
+     *
+     * @param aSeries the distinct keys of the series whose data is required
+     * @param aResolution the resolution at which the data is required
+     * @param aStartDate the start of the date range to be retrieved, inclusive.
+     * @param aEndDate the end of the date range to be retrieved, exclusive.
+     * @param aPlan the plan already made for the given series, resolution and date range;
+     * or null if the load is to be planned. Ignored if the range is loaded in windows, as
+     * each window is planned only as it is loaded.
+     */
+    private Map<String, List<T>> load(List<String> aSeries, Resolution aResolution,
+                                      Instant aStartDate, Instant aEndDate, LoadPlan<T> aPlan) {
         if (log.isDebugEnabled()) {
-            log.debug("Beginning loading data [resolution: {}, start: {}, end: {}]",
-                aResolution, aStartDate, aEndDate);
+            log.debug("Beginning loading data [series: {}, resolution: {}, start: {}, end: {}]",
+                aSeries.size(), aResolution, aStartDate, aEndDate);
         }
 
         long started = System.currentTimeMillis();
-        List<T> result = loadOrFetch(aResolution, aStartDate, min(aEndDate, Instant.now()));
+        Instant now = Instant.now();
+        Instant endDate = (aPlan != null) ? aPlan.endDate : min(aEndDate, now);
+        Map<String, List<T>> result;
+        List<DateRange> windows = windows(aSeries.size(), aResolution, aStartDate, endDate);
+        if (windows.size() > 1) {
+            Map<String, List<T>> collected = new HashMap<>();
+            aSeries.forEach(key -> collected.put(key, new ArrayList<>()));
+            loadWindows(aSeries, aResolution, windows, data ->
+                data.forEach((key, list) -> collected.get(key).addAll(list))
+            );
+            result = collected;
 
-        if (log.isDebugEnabled()) {
-            log.debug("Completed loading data [resolution: {}, size: {}, duration: {}ms]",
-                aResolution, result.size(), System.currentTimeMillis() - started);
+            if (log.isDebugEnabled()) {
+                log.debug("Completed loading data [series: {}, resolution: {}, size: {}, windows: {}, duration: {}ms]",
+                    aSeries.size(), aResolution, size(result), windows.size(), System.currentTimeMillis() - started);
+            }
+        } else {
+            LoadPlan<T> plan = (aPlan != null) ? aPlan : plan(aSeries, aResolution, aStartDate, endDate);
+            result = execute(plan, null);
+
+            if (log.isDebugEnabled()) {
+                log.debug("Completed loading data [series: {}, resolution: {}, size: {}, duration: {}ms]\n{}",
+                    aSeries.size(), aResolution, size(result), System.currentTimeMillis() - started, plan.explain());
+            }
+        }
+
+        if ((readAhead != null) && (aStartDate.isBefore(endDate))) {
+            readAhead.submit(aResolution, aStartDate, endDate, now,
+                (resolution, start, end) -> execute(plan(aSeries, resolution, start, end), null));
         }
         return result;
     }
 
     /**
-     * A recursive method to retrieve the data for the given date range.
-     * <p>
-     * Will attempt to read the data, at the given resolution, from the local repository.
-     * If the data is not found at that resolution, it will generate the data by recursively
-     * reading data at a lower resolution. At the lowest resolution, it will fetch the data
-     * from the warehouse repository, and persist that to the local repository.
+     * As {@link #load(Collection, Resolution, Instant, Instant)}, but passes the data to the
+     * given listener in successive windows, in ascending date order; rather than returning
+     * it. Each window covers as many periods of the given resolution as can be loaded within
+     * the configured {@link LoaderConfig#getWindowSize() window size}; but at least one. So
+     * a long range, at a fine resolution, can be loaded without holding all its data at once.
+     * If no window size is configured, the data is passed as a single window.
      *
+     * @param aSeries the keys of the series whose data is required
      * @param aResolution the resolution at which the data is required
      * @param aStartDate the start of the date range to be retrieved, inclusive.
      * @param aEndDate the end of the date range to be retrieved, exclusive.
-     * @return the list of data elements covering the given date range at the requested
+     * @param aListener the listener to be passed the data of each window, in ascending date
+     * order, keyed on series.
+     */
+    public void loadWindowed(Collection<String> aSeries, Resolution aResolution,
+                             Instant aStartDate, Instant aEndDate,
+                             Consumer<Map<String, List<T>>> aListener) {
+        List<String> series = List.copyOf(new LinkedHashSet<>(aSeries));
+        Instant endDate = min(aEndDate, Instant.now());
+        loadWindows(series, aResolution, windows(series.size(), aResolution, aStartDate, endDate), aListener);
+    }
+
+    /**
+     * As {@link #load(String, Resolution, Instant, Instant)}, but loads the data at the
+     * resolution chosen by {@link #selectResolution(String, Collection, int, Instant, Instant)};
+     * so that the result has no more than the given number of elements.
+     *
+     * @param aSeries the key of the series whose data is required
+     * @param aResolutions the resolutions from which the resolution is to be chosen.
+     * @param aMaxPoints the max number of elements required.
+     * @param aStartDate the start of the date range to be retrieved, inclusive.
+     * @param aEndDate the end of the date range to be retrieved, exclusive.
+     * @return the list of data elements covering the given date range at the chosen
      * resolution, in ascending date order
      */
-    private List<T> loadOrFetch(Resolution aResolution, Instant aStartDate, Instant aEndDate) {
+    public List<T> load(String aSeries, Collection<Resolution> aResolutions, int aMaxPoints,
+                        Instant aStartDate, Instant aEndDate) {
+        // execute the plan by which the resolution was chosen, rather than planning again
+        LoadPlan<T> plan = selectPlan(aSeries, aResolutions, aMaxPoints, aStartDate, aEndDate);
+        return load(plan.series, plan.resolution, aStartDate, aEndDate, plan).get(aSeries);
+    }
+
+    /**
+     * Chooses, from the given resolutions, that at which the given series is to be loaded
+     * for the given date range; such that the result has no more than the given number of
+     * elements (points). Of the resolutions that meet that budget, the finest that is already
+     * materialized for the range is chosen; so that the load needs nothing from the warehouse.
+     * If none is materialized, the finest is chosen. If none meets the budget, the coarsest
+     * is chosen.
+     *
+     * @param aSeries the key of the series whose data is required
+     * @param aResolutions the resolutions from which the resolution is to be chosen.
+     * @param aMaxPoints the max number of elements required.
+     * @param aStartDate the start of the date range to be retrieved, inclusive.
+     * @param aEndDate the end of the date range to be retrieved, exclusive.
+     * @return the chosen resolution.
+     */
+    public Resolution selectResolution(String aSeries, Collection<Resolution> aResolutions, int aMaxPoints,
+                                       Instant aStartDate, Instant aEndDate) {
+        return selectPlan(aSeries, aResolutions, aMaxPoints, aStartDate, aEndDate).resolution;
+    }
+
+    /**
+     * Chooses the resolution as {@link #selectResolution(String, Collection, int, Instant, Instant)};
+     * returning the plan by which the given series is to be loaded at that resolution. Each
+     * candidate is planned at most once, in order of their period length, until one is found
+     * to be materialized.
+     */
+    private LoadPlan<T> selectPlan(String aSeries, Collection<Resolution> aResolutions, int aMaxPoints,
+                                   Instant aStartDate, Instant aEndDate) {
+        if (aResolutions.isEmpty()) {
+            throw new IllegalArgumentException("No resolutions given");
+        }
+
+        Instant endDate = min(aEndDate, Instant.now());
+
+        // order the resolutions by the length of their periods, finest first
+        Comparator<Resolution> byLength = Comparator.comparing(resolution ->
+            Duration.between(resolution.roundDown(aStartDate), resolution.next(aStartDate)));
+        List<Resolution> resolutions = aResolutions.stream().sorted(byLength).toList();
+
+        // the resolutions that meet the budget
+        List<Resolution> candidates = resolutions.stream()
+            .filter(resolution -> points(resolution, aStartDate, endDate, aMaxPoints) <= aMaxPoints)
+            .toList();
+
+        List<String> series = List.of(aSeries);
+        if (candidates.isEmpty()) {
+            return plan(series, resolutions.get(resolutions.size() - 1), aStartDate, endDate);
+        }
+
+        // prefer the finest that is already materialized; otherwise the finest
+        LoadPlan<T> result = null;
+        for (Resolution resolution : candidates) {
+            LoadPlan<T> plan = plan(series, resolution, aStartDate, endDate);
+            if (plan.fetchCost() == 0) {
+                result = plan;
+                break;
+            }
+            if (result == null) {
+                result = plan;
+            }
+        }
+
         if (log.isDebugEnabled()) {
-            log.debug("Loading data [resolution: {}, start: {}, end: {}]",
-                aResolution, aStartDate, aEndDate);
+            log.debug("Selected resolution [series: {}, maxPoints: {}, resolution: {}]",
+                aSeries, aMaxPoints, result.resolution);
         }
+        return result;
+    }
 
-        if (aResolution == null) {
-            // fetch the lowest resolution data from the warehouse
-            log.debug("Asking repository to fetch data [start: {}, end: {}]", aStartDate, aEndDate);
-            return repository.fetch(aStartDate, aEndDate);
+    /**
+     * Returns the number of elements, of the given resolution, covering the given date range;
+     * or the given limit plus one, if the number exceeds that limit.
+     */
+    private int points(Resolution aResolution, Instant aStartDate, Instant aEndDate, int aLimit) {
+        int result = 0;
+        Instant periodStart = aStartDate;
+        while ((periodStart.isBefore(aEndDate)) && (result <= aLimit)) {
+            result++;
+            periodStart = aResolution.next(periodStart);
+        }
+        return result;
+    }
+
+    /**
+     * Loads each of the given windows in turn, passing its data to the given listener.
+     * Each window is planned only once its predecessor is loaded; so that its plan reflects
+     * the data persisted by that predecessor.
+     */
+    private void loadWindows(List<String> aSeries, Resolution aResolution, List<DateRange> aWindows,
+                             Consumer<Map<String, List<T>>> aListener) {
+        aWindows.forEach(window -> {
+            checkInterrupted();
+            if (log.isDebugEnabled()) {
+                log.debug("Loading window [series: {}, resolution: {}, start: {}, end: {}]",
+                    aSeries.size(), aResolution, window.getStartDate(), window.getEndDate());
+            }
+            aListener.accept(execute(plan(aSeries, aResolution, window.getStartDate(), window.getEndDate()), null));
+        });
+    }
+
+    /**
+     * Divides the given date range into the windows in which it is to be loaded. Each
+     * window, after the first, starts on a boundary of the given resolution; and covers
+     * as many of its periods as require no more than the configured window size of elements,
+     * of the lowest resolution, across all series. But each covers at least one period.
+     *
+     * @param aSeriesCount the number of series to be loaded.
+     * @param aResolution the resolution at which the data is required
+     * @param aStartDate the start of the date range to be retrieved, inclusive.
+     * @param aEndDate the end of the date range to be retrieved, exclusive.
+     * @return the windows, in ascending date order. A single window if windowing is disabled.
+     */
+    private List<DateRange> windows(int aSeriesCount, Resolution aResolution, Instant aStartDate, Instant aEndDate) {
+        if ((windowSize <= 0) || (!aStartDate.isBefore(aEndDate))) {
+            return List.of(new DateRange(aStartDate, aEndDate));
+        }
+
+        // the span covered by the window size of the lowest resolution
+        Resolution lowest = lowest(aResolution);
+        Duration span = Duration.between(lowest.roundDown(aStartDate), lowest.next(aStartDate))
+            .multipliedBy(Math.max(1, windowSize / Math.max(1, aSeriesCount)));
+
+        List<DateRange> result = new ArrayList<>();
+        Instant windowStart = aStartDate;
+        while (windowStart.isBefore(aEndDate)) {
+            Instant windowEnd = aResolution.roundDown(windowStart.plus(span));
+            if (!windowEnd.isAfter(windowStart)) {
+                windowEnd = aResolution.next(windowStart);
+            }
+            windowEnd = min(windowEnd, aEndDate);
+            result.add(new DateRange(windowStart, windowEnd));
+            windowStart = windowEnd;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a description of the plan by which {@link #load(Collection, Resolution, Instant, Instant)}
+     * would load the data of the given series; without fetching, or persisting, any data.
+     * The plan lists, for each resolution, the number of elements read from the local
+     * repository, the cached and running partials used, and the ranges that must be
+     * accumulated from the lower resolution; down to the ranges fetched from the warehouse.
+     * <p>
+     * As the plan is computed from the data currently held, it may differ from that of a
+     * later load.
+     *
+     * @param aSeries the keys of the series whose data is required
+     * @param aResolution the resolution at which the data is required
+     * @param aStartDate the start of the date range to be retrieved, inclusive.
+     * @param aEndDate the end of the date range to be retrieved, exclusive.
+     * @return the description of the load plan.
+     */
+    public String explain(Collection<String> aSeries, Resolution aResolution,
+                          Instant aStartDate, Instant aEndDate) {
+        List<String> series = List.copyOf(new LinkedHashSet<>(aSeries));
+        return plan(series, aResolution, aStartDate, min(aEndDate, Instant.now())).explain();
+    }
+
+    /**
+     * As {@link #load(Collection, Resolution, Instant, Instant)}, but performs the load
+     * asynchronously; returning a future that will complete with the result.
+     * <p>
+     * If the load hasn't completed by the given deadline, the future completes with a
+     * TimeoutException. If the future is cancelled, or times out, the thread performing
+     * the load is interrupted; so the load is abandoned at its next step, and any data
+     * still being fetched from the warehouse is cancelled. Any data already accumulated
+     * and persisted remains so.
+     *
+     * @param aSeries the keys of the series whose data is required
+     * @param aResolution the resolution at which the data is required
+     * @param aStartDate the start of the date range to be retrieved, inclusive.
+     * @param aEndDate the end of the date range to be retrieved, exclusive.
+     * @param aDeadline the instant by which the load must complete.
+     * @return the future result of the load.
+     */
+    public CompletableFuture<Map<String, List<T>>> loadAsync(Collection<String> aSeries, Resolution aResolution,
+                                                             Instant aStartDate, Instant aEndDate,
+                                                             Instant aDeadline) {
+        CompletableFuture<Map<String, List<T>>> result =
+            submit(() -> load(aSeries, aResolution, aStartDate, aEndDate));
+        result.whenComplete((data, error) -> {
+            if ((error != null) && (log.isDebugEnabled())) {
+                log.debug("Abandoning load [series: {}, resolution: {}, start: {}, end: {}, reason: {}]",
+                    aSeries.size(), aResolution, aStartDate, aEndDate, error.toString());
+            }
+        });
+
+        long timeout = Duration.between(Instant.now(), aDeadline).toMillis();
+        return result.orTimeout(Math.max(0, timeout), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * As {@link #loadAsync(Collection, Resolution, Instant, Instant, Instant)}, but returns
+     * the data of the single series identified by the given key.
+     *
+     * @param aSeries the key of the series whose data is required
+     * @param aResolution the resolution at which the data is required
+     * @param aStartDate the start of the date range to be retrieved, inclusive.
+     * @param aEndDate the end of the date range to be retrieved, exclusive.
+     * @param aDeadline the instant by which the load must complete.
+     * @return the future result of the load.
+     */
+    public CompletableFuture<List<T>> loadAsync(String aSeries, Resolution aResolution,
+                                                Instant aStartDate, Instant aEndDate,
+                                                Instant aDeadline) {
+        CompletableFuture<Map<String, List<T>>> load =
+            loadAsync(List.of(aSeries), aResolution, aStartDate, aEndDate, aDeadline);
+
+        // cancellation of the returned future must reach the load
+        CompletableFuture<List<T>> result = load.thenApply(data -> data.get(aSeries));
+        result.whenComplete((data, error) -> {
+            if (error != null) {
+                load.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * As {@link #load(Collection, Resolution, Instant, Instant)}, but passes the data to
+     * the given listener progressively. The load is performed asynchronously. The data
+     * already held in the local repository, at the given resolution, is passed first; with
+     * the ranges still to be loaded marked as pending. That is passed as soon as it is read;
+     * before the ranges are planned at the lower resolutions. As each of those ranges is
+     * loaded, an updated snapshot is passed to the listener. The last snapshot passed has
+     * no pending ranges.
+     * <p>
+     * Each snapshot is a copy of all the data loaded so far; so a listener may keep it, or
+     * replace its previous snapshot with it. The snapshots are passed on the thread
+     * performing the load. If the returned future is cancelled, that thread is interrupted;
+     * as with {@link #loadAsync(Collection, Resolution, Instant, Instant, Instant)}.
+     *
+     * @param aSeries the keys of the series whose data is required
+     * @param aResolution the resolution at which the data is required
+     * @param aStartDate the start of the date range to be retrieved, inclusive.
+     * @param aEndDate the end of the date range to be retrieved, exclusive.
+     * @param aListener the listener to be passed the snapshots.
+     * @return the future result of the load.
+     */
+    public CompletableFuture<Map<String, List<T>>> loadProgressive(Collection<String> aSeries, Resolution aResolution,
+                                                                   Instant aStartDate, Instant aEndDate,
+                                                                   Consumer<LoadSnapshot<T>> aListener) {
+        List<String> series = List.copyOf(new LinkedHashSet<>(aSeries));
+        Instant endDate = min(aEndDate, Instant.now());
+        return submit(() -> {
+            LoadPlan<T> plan = planLocal(series, aResolution, aStartDate, endDate);
+
+            // pass the data already materialized, before planning the remainder
+            aListener.accept(snapshot(plan.known, Map.of(), plan.requirements));
+            if (plan.requirements.isEmpty()) {
+                return execute(plan, null);
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("Loading progressively [series: {}, resolution: {}, requirements: {}]",
+                    series.size(), aResolution, plan.requirements.size());
+            }
+            planSources(plan);
+            return execute(plan, null, aListener);
+        });
+    }
+
+    /**
+     * Returns the rollup, across all the given member series, of their data at the given
+     * resolution covering the given date range. Each element of the result is the
+     * accumulation, by way of the repository's {@link Accumulation}, of the elements of
+     * all members for the same period.
+     * <p>
+     * The rollup of whole periods is persisted under the given group key, as any other
+     * series. So subsequent requests for the same rollup are a single read of the group's
+     * series. As the rollups are immutable, the group key must identify the membership of
+     * the group; a change of membership requires a new group key.
+     * <p>
+     * As with {@link #load(Resolution, Instant, Instant)}, partial leading and trailing
+     * periods are accumulated from the lower resolutions of the members; but not persisted.
+     *
+     * @param aGroup the key under which the rollup is persisted.
+     * @param aMembers the keys of the series to be rolled up.
+     * @param aResolution the resolution at which the rollup is required
+     * @param aStartDate the start of the date range to be retrieved, inclusive.
+     * @param aEndDate the end of the date range to be retrieved, exclusive.
+     * @return the list of rolled-up data elements covering the given date range at the
+     * requested resolution, in ascending date order
+     */
+    public List<T> loadRollup(String aGroup, Collection<String> aMembers, Resolution aResolution,
+                              Instant aStartDate, Instant aEndDate) {
+        List<String> members = List.copyOf(new LinkedHashSet<>(aMembers));
+        if (log.isDebugEnabled()) {
+            log.debug("Beginning loading rollup [group: {}, members: {}, resolution: {}, start: {}, end: {}]",
+                aGroup, members.size(), aResolution, aStartDate, aEndDate);
         }
 
         long started = System.currentTimeMillis();
-        Resolution lowerResolution = aResolution.getLower().orElse(null);
+        Instant endDate = min(aEndDate, Instant.now());
 
         // adjust requested dates to fit resolution boundaries
         Instant resolutionStartDate = aResolution.roundUp(aStartDate);
-        Instant resolutionEndDate = aResolution.roundDown(aEndDate);
+        Instant resolutionEndDate = aResolution.roundDown(endDate);
 
         List<T> result = new ArrayList<>();
 
-        // load partial leading data at lower resolution
-        if ((lowerResolution != null) && (resolutionStartDate.isAfter(aStartDate))) {
-            log.debug("Loading partial leader");
-            result.addAll(accumulate(aResolution, aStartDate, resolutionStartDate));
+        // roll up the members' partial leading data
+        if (resolutionStartDate.isAfter(aStartDate)) {
+            log.debug("Rolling up partial leader");
+            result.addAll(rollup(members, aResolution, aStartDate, min(resolutionStartDate, endDate)));
         }
 
         // if there are any whole boundaries
         if (resolutionStartDate.isBefore(resolutionEndDate)) {
-            log.debug("Loading whole boundaries");
+            // read any rollup we have in the local database
+            List<T> body = repository.get(aGroup, aResolution, resolutionStartDate, resolutionEndDate);
+            result.addAll(body);
 
-            // read main body of period from any data we have in the local database
-            if (log.isDebugEnabled()) {
-                log.debug("Asking repository to get data [resolution: {}, start: {}, end: {}]",
-                    aResolution, resolutionStartDate, resolutionEndDate);
+            // roll up the members' data for any gaps, and save them under the group
+            List<T> missing = new ArrayList<>();
+            findGaps(body, resolutionStartDate, resolutionEndDate).forEach(gap ->
+                missing.addAll(rollup(members, aResolution, gap.getStartDate(), gap.getEndDate()))
+            );
+
+            if (!missing.isEmpty()) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Saving rollup [group: {}, resolution: {}, size: {}]",
+                        aGroup, aResolution, missing.size());
+                }
+                result.addAll(repository.save(aGroup, missing));
+                Collections.sort(result);
             }
-            List<T> body = repository.get(aResolution, resolutionStartDate, resolutionEndDate);
+        }
 
-            // add the main body of data to the result
-            result.addAll(body);
+        // roll up the members' partial trailing data
+        if ((resolutionEndDate.isBefore(endDate)) && (!resolutionEndDate.isBefore(resolutionStartDate))) {
+            log.debug("Rolling up partial trailer");
+            result.addAll(rollup(members, aResolution, resolutionEndDate, endDate));
+        }
 
-            // fetch missing periods from lower resolution
-            List<T> missing = new ArrayList<>();
-            Instant periodStart = resolutionStartDate;
-            for (T next : body) {
-                if (next.getStartDate().isAfter(periodStart)) {
-                    // fetch data for that gap from the lower resolution
-                    missing.addAll(accumulate(aResolution, periodStart, next.getStartDate()));
+        if (log.isDebugEnabled()) {
+            log.debug("Completed loading rollup [group: {}, resolution: {}, size: {}, duration: {}ms]",
+                aGroup, aResolution, result.size(), System.currentTimeMillis() - started);
+        }
+        return result;
+    }
+
+    /**
+     * Loads the data of all the given series, at the given resolution, and accumulates
+     * the elements of each period across those series.
+     */
+    private List<T> rollup(List<String> aMembers, Resolution aResolution,
+                           Instant aStartDate, Instant aEndDate) {
+        // merge the members' elements into a single date order
+        List<T> memberData = execute(plan(aMembers, aResolution, aStartDate, aEndDate), null).values().stream()
+            .flatMap(List::stream)
+            .sorted()
+            .toList();
+
+        // each period's elements are accumulated as though they were of a lower resolution
+        return accumulate(aResolution, aStartDate, aEndDate, memberData.iterator(), null, null);
+    }
+
+    /**
+     * A recursive method to compute the plan by which the data of the given series, for the
+     * given date range, is to be loaded.
+     * <p>
+     * Reads the data, at the given resolution, from the local repository; and records the
+     * ranges not found there as requirements to be accumulated from the lower resolution.
+     * The requirements of each group of series that touch, or overlap, are then planned as
+     * a single range of the lower resolution; as are those separated by less than the
+     * configured {@link LoaderConfig#getRequestCost() request cost}. That range is planned
+     * at the cheapest of the resolution's sources. At the lowest resolution, that range is
+     * planned as a fetch from the warehouse. Nothing is fetched, or persisted, during
+     * planning.
+     *
+     * @param aSeries the keys of the series whose data is required
+     * @param aResolution the resolution at which the data is required. Null if the data is
+     * to be fetched from the warehouse.
+     * @param aStartDate the start of the date range to be retrieved, inclusive.
+     * @param aEndDate the end of the date range to be retrieved, exclusive.
+     * @return the plan by which the data is to be loaded.
+     */
+    private LoadPlan<T> plan(List<String> aSeries, Resolution aResolution,
+                             Instant aStartDate, Instant aEndDate) {
+        LoadPlan<T> result = planLocal(aSeries, aResolution, aStartDate, aEndDate);
+        if (aResolution == null) {
+            return result;
+        }
+
+        planSources(result);
+        if (log.isDebugEnabled()) {
+            log.debug("Planned load [series: {}, resolution: {}, start: {}, end: {}, read: {}, requirements: {}]",
+                aSeries.size(), aResolution, aStartDate, aEndDate, result.read, result.requirements.size());
+        }
+        return result;
+    }
+
+    /**
+     * The first phase of {@link #plan(List, Resolution, Instant, Instant)}. Reads the data,
+     * at the given resolution, from the local repository; and records the ranges not found
+     * there as requirements. The requirements are not planned.
+     */
+    private LoadPlan<T> planLocal(List<String> aSeries, Resolution aResolution,
+                                  Instant aStartDate, Instant aEndDate) {
+        LoadPlan<T> result = new LoadPlan<>(aSeries, aResolution, aStartDate, aEndDate);
+        if (aResolution == null) {
+            return result;
+        }
+
+        boolean hasSources = !aResolution.getSources().isEmpty();
+
+        // adjust requested dates to fit resolution boundaries
+        Instant resolutionStartDate = aResolution.roundUp(aStartDate);
+        Instant resolutionEndDate = aResolution.roundDown(aEndDate);
+
+        aSeries.forEach(key -> result.known.put(key, new ArrayList<>()));
+
+        // plan partial leading data at lower resolution
+        if ((hasSources) && (resolutionStartDate.isAfter(aStartDate))) {
+            planPartial(result, aSeries, aStartDate, min(resolutionStartDate, aEndDate));
+        }
+
+        // if there are any whole boundaries
+        if (resolutionStartDate.isBefore(resolutionEndDate)) {
+            planBody(result, resolutionStartDate, resolutionEndDate);
+        }
+
+        // plan partial trailing data at lower resolution
+        if ((hasSources) && (resolutionEndDate.isBefore(aEndDate))
+            && (!resolutionEndDate.isBefore(resolutionStartDate))) {
+            List<String> remaining = new ArrayList<>();
+            aSeries.forEach(key -> {
+                T running = (runningAggregates == null) ? null
+                    : runningAggregates.get(key, aResolution, resolutionEndDate, aEndDate);
+                if (running != null) {
+                    result.known.get(key).add(running);
+                    result.running++;
+                } else {
+                    remaining.add(key);
                 }
+            });
 
-                periodStart = next.getEndDate();
+            if (!remaining.isEmpty()) {
+                planPartial(result, remaining, resolutionEndDate, aEndDate);
             }
+        }
+        return result;
+    }
 
-            // if we're missing some from the end
-            if (periodStart.isBefore(resolutionEndDate)) {
-                // fetch data for that gap from the lower resolution
-                missing.addAll(accumulate(aResolution, periodStart, resolutionEndDate));
+    /**
+     * The second phase of {@link #plan(List, Resolution, Instant, Instant)}. Plans the
+     * requirements of the given plan at the lower resolution; adding the child plans by
+     * which they are satisfied.
+     */
+    private void planSources(LoadPlan<T> aPlan) {
+        // plan the requirements of each group of series, merging those that touch or overlap
+        Map<List<String>, List<DateRange>> ranges = new LinkedHashMap<>();
+        aPlan.requirements.stream()
+            .filter(requirement -> requirement.extendFrom == null)
+            .forEach(requirement ->
+                ranges.computeIfAbsent(requirement.series, k -> new ArrayList<>()).add(requirement.range)
+            );
+        ranges.forEach((keys, list) -> coalesce(list).forEach(range -> {
+            LoadPlan<T> child = planSource(aPlan.resolution, keys, range.getStartDate(), range.getEndDate());
+
+            // a single series fetched for a single requirement is streamed into its accumulation
+            child.streamed = (child.isFetch()) && (keys.size() == 1) && (list.contains(range));
+            aPlan.children.add(child);
+        }));
+
+        // cached partials are extended from the source from which they were accumulated
+        aPlan.requirements.stream()
+            .filter(requirement -> requirement.extendFrom != null)
+            .forEach(requirement -> {
+                requirement.plan = plan(requirement.series, requirement.extendFrom,
+                    requirement.range.getStartDate(), requirement.range.getEndDate());
+                aPlan.children.add(requirement.plan);
+            });
+    }
+
+    /**
+     * Plans the given range at the cheapest of the given resolution's sources. The first
+     * source is preferred; the others are only planned if that source would require data
+     * from the warehouse, and are chosen if they require less. So a resolution already
+     * materialized at another source is accumulated from that, rather than the warehouse.
+     *
+     * @param aResolution the resolution whose sources are to be planned.
+     * @param aSeries the keys of the series whose data is required
+     * @param aStartDate the start of the date range to be retrieved, inclusive.
+     * @param aEndDate the end of the date range to be retrieved, exclusive.
+     * @return the plan of the chosen source; or a fetch from the warehouse if the given
+     * resolution has no sources.
+     */
+    private LoadPlan<T> planSource(Resolution aResolution, List<String> aSeries,
+                                   Instant aStartDate, Instant aEndDate) {
+        List<Resolution> sources = aResolution.getSources();
+        LoadPlan<T> result = plan(aSeries, sources.isEmpty() ? null : sources.get(0), aStartDate, aEndDate);
+
+        for (Resolution source : sources.subList(Math.min(1, sources.size()), sources.size())) {
+            long cost = result.fetchCost();
+            if (cost == 0) {
+                break;
             }
 
-            // if we filled any gaps
-            if (!missing.isEmpty()) {
+            LoadPlan<T> alternative = plan(aSeries, source, aStartDate, aEndDate);
+            if (alternative.fetchCost() < cost) {
                 if (log.isDebugEnabled()) {
-                    log.debug("Saving data [resolution: {}, size: {}, start: {}, end: {}]",
-                        aResolution, missing.size(), resolutionStartDate, resolutionEndDate);
+                    log.debug("Choosing alternative source [resolution: {}, source: {}, cost: {}, instead of: {}]",
+                        aResolution, source, alternative.fetchCost(), cost);
                 }
-                // save them and add to the overall results
-                result.addAll(repository.save(missing));
-                Collections.sort(result);
+                result = alternative;
             }
         }
+        return result;
+    }
 
-        // load partial trailing data at lower resolution
-        if ((lowerResolution != null) && (resolutionEndDate.isBefore(aEndDate))) {
-            log.debug("Loading partial trailer");
-            result.addAll(accumulate(aResolution, resolutionEndDate, aEndDate));
+    /**
+     * Merges the given ranges that touch or overlap; and, if gaps are to be coalesced,
+     * those separated by less than the cost of a request. The data between coalesced
+     * ranges is already covered, so it will be retrieved from the lower resolution but
+     * discarded; rather than accumulated and persisted again.
+     *
+     * @param aRanges the ranges to be merged.
+     * @return the merged ranges, in ascending date order.
+     */
+    private List<DateRange> coalesce(List<DateRange> aRanges) {
+        List<DateRange> merged = DateRange.merge(aRanges);
+        if ((requestCost.isZero()) || (merged.size() < 2)) {
+            return merged;
         }
 
+        List<DateRange> result = new ArrayList<>();
+        DateRange current = merged.get(0);
+        for (DateRange next : merged.subList(1, merged.size())) {
+            if (Duration.between(current.getEndDate(), next.getStartDate()).compareTo(requestCost) < 0) {
+                current = new DateRange(current.getStartDate(), next.getEndDate());
+            } else {
+                result.add(current);
+                current = next;
+            }
+        }
+        result.add(current);
+
+        if ((log.isDebugEnabled()) && (result.size() < merged.size())) {
+            log.debug("Coalesced gaps [ranges: {}, requests: {}]", merged.size(), result.size());
+        }
+        return result;
+    }
+
+    /**
+     * Reads the whole periods of the given plan's series from the local repository, and
+     * records the gaps in each as requirements; grouping the series that share the same gap.
+     */
+    private void planBody(LoadPlan<T> aPlan, Instant aStartDate, Instant aEndDate) {
+        Resolution resolution = aPlan.resolution;
         if (log.isDebugEnabled()) {
-            log.debug("Loaded data entries [resolution: {}, size: {}, duration: {}ms]",
-                aResolution, result.size(), System.currentTimeMillis() - started);
+            log.debug("Asking repository to get data [series: {}, resolution: {}, start: {}, end: {}]",
+                aPlan.series.size(), resolution, aStartDate, aEndDate);
+        }
+        Map<String, List<T>> bodies = repository.get(aPlan.series, resolution, aStartDate, aEndDate);
+        Map<String, List<DateRange>> knownEmpty = repository.getEmpty(aPlan.series, resolution, aStartDate, aEndDate);
+
+        Map<DateRange, List<String>> gaps = new LinkedHashMap<>();
+        aPlan.series.forEach(key -> {
+            List<T> body = bodies.getOrDefault(key, List.of());
+            aPlan.read += body.size();
+
+            // include the periods known to be empty, so they are not taken as gaps
+            List<DateRange> empty = knownEmpty.getOrDefault(key, List.of());
+            if (!empty.isEmpty()) {
+                body = new ArrayList<>(body);
+                body.addAll(emptyElements(resolution, empty));
+                Collections.sort(body);
+                aPlan.knownEmpty.put(key, empty);
+            }
+
+            aPlan.known.get(key).addAll(body);
+            findGaps(body, aStartDate, aEndDate).forEach(gap ->
+                gaps.computeIfAbsent(gap, k -> new ArrayList<>()).add(key)
+            );
+        });
+
+        gaps.forEach((gap, keys) ->
+            aPlan.requirements.add(new LoadPlan.Requirement<>(LoadPlan.Step.GAP, keys, gap, null, null))
+        );
+    }
+
+    /**
+     * Records the partial element of each of the given series, covering the given date
+     * range; which falls within a single period of the plan's resolution. If a partial
+     * element for the same series and start date is cached, and its watermark doesn't
+     * exceed the given end date, only the data following that watermark is required.
+     * <p>
+     * The watermark of a partial element is not its end date, but the last boundary of
+     * its grain before that end date; the grain being the lowest resolution of the source
+     * from which it was accumulated. As only whole periods of that grain are accumulated,
+     * the data following that boundary is not yet included. The partial is extended from
+     * that same source; so if none of the resolution's sources has that grain, the partial
+     * is accumulated afresh.
+     */
+    private void planPartial(LoadPlan<T> aPlan, List<String> aSeries, Instant aStartDate, Instant aEndDate) {
+        Resolution resolution = aPlan.resolution;
+        List<String> uncached = new ArrayList<>();
+        Map<Resolution, Map<Instant, Map<String, T>>> extensions = new LinkedHashMap<>();
+        aSeries.forEach(key -> {
+            PartialCache.Partial<T> partial = (partialCache == null) ? null : partialCache.get(key, resolution, aStartDate);
+            Resolution source = (partial == null) ? null : sourceOf(resolution, partial.grain());
+            Instant watermark = (source == null) ? null : max(aStartDate, partial.watermark());
+            if ((partial != null) && (partial.element().getEndDate().equals(aEndDate))) {
+                aPlan.known.get(key).add(partial.element());
+                aPlan.cached++;
+            } else if ((source == null) || (aEndDate.isBefore(watermark))) {
+                uncached.add(key);
+            } else {
+                // group the cached partials to be extended by their source and watermark
+                extensions.computeIfAbsent(source, k -> new LinkedHashMap<>())
+                    .computeIfAbsent(watermark, k -> new LinkedHashMap<>())
+                    .put(key, partial.element());
+            }
+        });
+
+        if (!uncached.isEmpty()) {
+            aPlan.requirements.add(new LoadPlan.Requirement<>(LoadPlan.Step.PARTIAL, uncached,
+                new DateRange(aStartDate, aEndDate), aStartDate, null));
+        }
+
+        extensions.forEach((source, byWatermark) -> byWatermark.forEach((watermark, cached) -> {
+            aPlan.cached += cached.size();
+            aPlan.requirements.add(new LoadPlan.Requirement<>(LoadPlan.Step.EXTEND, List.copyOf(cached.keySet()),
+                new DateRange(watermark, aEndDate), aStartDate, cached, source));
+        }));
+    }
+
+    /**
+     * Returns the first of the given resolution's sources whose lowest resolution is the
+     * given grain; or null if it has no such source.
+     */
+    private Resolution sourceOf(Resolution aResolution, Resolution aGrain) {
+        return aResolution.getSources().stream()
+            .filter(source -> lowest(source).equals(aGrain))
+            .findFirst()
+            .orElse(null);
+    }
+
+    /**
+     * A recursive method to execute the given plan. The child plans are executed first, to
+     * supply the lower-resolution data from which each requirement is accumulated. The
+     * accumulated gaps are persisted, and the accumulated partials are cached.
+     * <p>
+     * It also collects the ranges, within the plan's date range, that are known to contain
+     * no data. This allows the caller to determine which of its own periods are empty.
+     *
+     * @param aPlan the plan to be executed.
+     * @param aEmptyRanges the map to which the empty ranges of each series are added.
+     * May be null.
+     * @return the lists of data elements covering the plan's date range at its resolution,
+     * in ascending date order, keyed on series.
+     */
+    private Map<String, List<T>> execute(LoadPlan<T> aPlan, Map<String, List<DateRange>> aEmptyRanges) {
+        return execute(aPlan, aEmptyRanges, null);
+    }
+
+    /**
+     * As {@link #execute(LoadPlan, Map)}, but passes a snapshot of the data to the given
+     * listener as each requirement is satisfied. The child plans are executed as their
+     * requirements are reached; so the snapshots are refined as the data is fetched.
+     *
+     * @param aPlan the plan to be executed.
+     * @param aEmptyRanges the map to which the empty ranges of each series are added.
+     * May be null.
+     * @param aListener the listener to be passed the snapshots. May be null.
+     * @return the lists of data elements covering the plan's date range at its resolution,
+     * in ascending date order, keyed on series.
+     */
+    private Map<String, List<T>> execute(LoadPlan<T> aPlan, Map<String, List<DateRange>> aEmptyRanges,
+                                         Consumer<LoadSnapshot<T>> aListener) {
+        checkInterrupted();
+        long started = System.currentTimeMillis();
+        if (aPlan.isFetch()) {
+            // fetch the lowest resolution data from the warehouse
+            log.debug("Asking repository to fetch data [series: {}, start: {}, end: {}]",
+                aPlan.series.size(), aPlan.startDate, aPlan.endDate);
+            Map<String, List<T>> result = repository.fetch(aPlan.series, aPlan.startDate, aPlan.endDate);
+            aPlan.duration = System.currentTimeMillis() - started;
+            return result;
+        }
+
+        Resolution resolution = aPlan.resolution;
+
+        Map<String, List<T>> result = new HashMap<>();
+        aPlan.known.forEach((key, data) -> result.put(key, new ArrayList<>(data)));
+        aPlan.knownEmpty.forEach((key, empty) -> addEmpty(aEmptyRanges, key, empty));
+
+        // accumulate each requirement from the lower-resolution data
+        Map<LoadPlan<T>, Map<String, List<T>>> lowerData = new IdentityHashMap<>();
+        Map<LoadPlan<T>, Map<String, List<DateRange>>> lowerEmpty = new IdentityHashMap<>();
+        Map<String, List<T>> missing = new HashMap<>();
+        Map<String, List<DateRange>> foundEmpty = new HashMap<>();
+
+        // the index of the last requirement supplied by each child plan
+        Map<LoadPlan<T>, Integer> lastUse = new IdentityHashMap<>();
+        for (int index = 0; index < aPlan.requirements.size(); index++) {
+            lastUse.put(aPlan.source(aPlan.requirements.get(index)), index);
+        }
+
+        for (int index = 0; index < aPlan.requirements.size(); index++) {
+            checkInterrupted();
+            LoadPlan.Requirement<T> requirement = aPlan.requirements.get(index);
+            LoadPlan<T> source = aPlan.source(requirement);
+
+            // execute the child plan, when first required, to supply the lower-resolution data
+            if ((!source.streamed) && (!lowerData.containsKey(source))) {
+                Map<String, List<DateRange>> empty = new HashMap<>();
+                lowerData.put(source, execute(source, empty));
+                lowerEmpty.put(source, empty);
+            }
+
+            requirement.series.forEach(key -> {
+                switch (requirement.step) {
+                    case GAP -> missing.computeIfAbsent(key, k -> new ArrayList<>())
+                        .addAll(accumulate(resolution, requirement.range, key, source,
+                            lowerData.get(source), lowerEmpty.get(source), emptyRanges(foundEmpty, key)));
+
+                    case PARTIAL -> {
+                        List<T> data = accumulate(resolution, requirement.range, key, source,
+                            lowerData.get(source), lowerEmpty.get(source), emptyRanges(aEmptyRanges, key));
+                        if ((partialCache != null) && (data.size() == 1)) {
+                            partialCache.put(key, resolution, data.get(0), lowest(source.resolution));
+                        }
+                        result.get(key).addAll(data);
+                    }
+
+                    case EXTEND -> {
+                        // accumulate the cached partial with the data following its watermark
+                        Accumulation<T> accumulation = repository.newAccumulation(resolution,
+                            requirement.partialStart, requirement.range.getEndDate());
+                        accumulation.add(requirement.extended.get(key));
+                        accumulate(resolution, requirement.range, key, source,
+                            lowerData.get(source), lowerEmpty.get(source), null).forEach(accumulation::add);
+
+                        T extended = accumulation.complete();
+                        partialCache.put(key, resolution, extended, lowest(requirement.extendFrom));
+                        result.get(key).add(extended);
+                    }
+                }
+            });
+
+            // release the child's data once its last requirement is satisfied
+            if (lastUse.get(source) == index) {
+                lowerData.remove(source);
+                lowerEmpty.remove(source);
+            }
+
+            if (aListener != null) {
+                List<LoadPlan.Requirement<T>> pending = aPlan.requirements.subList(index + 1, aPlan.requirements.size());
+                aListener.accept(snapshot(result, missing, pending));
+            }
+        }
+
+        // save any gaps we filled and add them to the results; unless the load is abandoned
+        checkInterrupted();
+        missing.forEach((key, data) -> saveMissing(key, resolution, data,
+            foundEmpty.getOrDefault(key, List.of()), result.get(key), aEmptyRanges));
+        result.values().forEach(Collections::sort);
+
+        aPlan.duration = System.currentTimeMillis() - started;
+        if (log.isDebugEnabled()) {
+            log.debug("Loaded data entries [series: {}, resolution: {}, size: {}, duration: {}ms]",
+                aPlan.series.size(), resolution, size(result), aPlan.duration);
         }
         return result;
     }
 
     /**
-     * Retrieves the data, covering the given date range, at the given resolution.
-     * It does this by aggregating the data at the resolution immediately lower than
-     * the given resolution.
+     * Returns a snapshot of the given data, and of the data accumulated to fill its gaps;
+     * with the ranges of the given requirements marked as pending.
      *
-     * @param aResolution the resolution to which we want to aggregate the data
-     * @param aStartDate the start of the date range to be aggregated, inclusive.
-     * @param aEndDate the end of the date range to be aggregated, exclusive.
-     * @return the given data aggregated over the given date range at the given resolution
+     * @param aData the data loaded, keyed on series.
+     * @param aMissing the data accumulated to fill the gaps, keyed on series.
+     * @param aPending the requirements yet to be satisfied.
+     */
+    private LoadSnapshot<T> snapshot(Map<String, List<T>> aData, Map<String, List<T>> aMissing,
+                                     List<LoadPlan.Requirement<T>> aPending) {
+        Map<String, List<T>> data = new HashMap<>();
+        aData.forEach((key, list) -> {
+            List<T> copy = new ArrayList<>(list);
+            copy.addAll(aMissing.getOrDefault(key, List.of()));
+            Collections.sort(copy);
+            data.put(key, copy);
+        });
+
+        // an extended partial is pending over its whole period
+        Map<String, List<DateRange>> pending = new HashMap<>();
+        aPending.forEach(requirement -> {
+            DateRange range = (requirement.step == LoadPlan.Step.EXTEND)
+                ? new DateRange(requirement.partialStart, requirement.range.getEndDate())
+                : requirement.range;
+            requirement.series.forEach(key -> pending.computeIfAbsent(key, k -> new ArrayList<>()).add(range));
+        });
+        pending.replaceAll((key, ranges) -> DateRange.merge(ranges));
+        return new LoadSnapshot<>(data, pending);
+    }
+
+    /**
+     * Returns the gaps, within the given date range, between the given elements.
+     *
+     * @param aBody the elements, in ascending date order.
+     * @param aStartDate the start of the date range, inclusive.
+     * @param aEndDate the end of the date range, exclusive.
+     * @return the date ranges not covered by the elements, in ascending date order.
      */
-    private List<T> accumulate(Resolution aResolution, Instant aStartDate, Instant aEndDate) {
-        Resolution lowerRes = aResolution.getLower().orElse(null);
+    private List<DateRange> findGaps(List<T> aBody, Instant aStartDate, Instant aEndDate) {
+        List<DateRange> result = new ArrayList<>();
+        Instant periodStart = aStartDate;
+        for (T next : aBody) {
+            if (next.getStartDate().isAfter(periodStart)) {
+                result.add(new DateRange(periodStart, next.getStartDate()));
+            }
 
+            periodStart = next.getEndDate();
+        }
+
+        // if we're missing some from the end
+        if (periodStart.isBefore(aEndDate)) {
+            result.add(new DateRange(periodStart, aEndDate));
+        }
+        return result;
+    }
+
+    /**
+     * Persists the data, of the given series, that filled the gaps in its local data; and
+     * adds it to the given result. Any empty periods found will be recorded as such and,
+     * if the repository accepts them, their empty elements won't be persisted.
+     *
+     * @param aSeries the key of the series to which the data belongs.
+     * @param aResolution the resolution of the data.
+     * @param aMissing the data that filled the gaps.
+     * @param aFoundEmpty the ranges of the empty periods found among that data.
+     * @param aResult the result to which the data is to be added.
+     * @param aEmptyRanges the map to which the empty ranges of each series are added.
+     * May be null.
+     */
+    private void saveMissing(String aSeries, Resolution aResolution, List<T> aMissing,
+                             List<DateRange> aFoundEmpty, List<T> aResult,
+                             Map<String, List<DateRange>> aEmptyRanges) {
+        List<T> missing = aMissing;
+
+        // record any empty periods found, rather than persist their empty elements
+        if (!aFoundEmpty.isEmpty()) {
+            List<DateRange> merged = DateRange.merge(aFoundEmpty);
+            addEmpty(aEmptyRanges, aSeries, merged);
+            if (repository.saveEmpty(aSeries, aResolution, merged)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Saved empty ranges [series: {}, resolution: {}, size: {}]",
+                        aSeries, aResolution, merged.size());
+                }
+                Predicate<T> isEmpty = data -> DateRange.covers(merged, data.getStartDate(), data.getEndDate());
+                aResult.addAll(missing.stream().filter(isEmpty).toList());
+                missing = missing.stream().filter(isEmpty.negate()).toList();
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Saving data [series: {}, resolution: {}, size: {}]",
+                    aSeries, aResolution, missing.size());
+            }
+            aResult.addAll(repository.save(aSeries, missing));
+        }
+    }
+
+    /**
+     * Accumulates the data of the given series, covering the given date range, at the given
+     * resolution, from the lower-resolution data supplied by the given child plan.
+     *
+     * @param aResolution the resolution to which we want to aggregate the data
+     * @param aRange the date range to be aggregated.
+     * @param aSeries the key of the series whose data is to be aggregated.
+     * @param aSource the child plan that supplies the lower-resolution data.
+     * @param aLowerData the lower-resolution data supplied by that plan, keyed on series.
+     * Null if the plan is to be streamed.
+     * @param aLowerEmpty the lower-resolution ranges known to be empty, keyed on series.
+     * Null if the plan is to be streamed.
+     * @param aEmptyRanges the list to which the ranges of any empty periods are added.
+     * May be null.
+     * @return the data aggregated over the given date range at the given resolution
+     */
+    private List<T> accumulate(Resolution aResolution, DateRange aRange, String aSeries, LoadPlan<T> aSource,
+                               Map<String, List<T>> aLowerData, Map<String, List<DateRange>> aLowerEmpty,
+                               List<DateRange> aEmptyRanges) {
         if (log.isDebugEnabled()) {
-            log.debug("Accumulating data items [to: {}, from: {}, start: {}, end: {}]",
-                aResolution, lowerRes, aStartDate, aEndDate);
+            log.debug("Accumulating data items [series: {}, to: {}, from: {}, start: {}, end: {}]",
+                aSeries, aResolution, aSource.resolution, aRange.getStartDate(), aRange.getEndDate());
         }
 
-        // fetch data from the lower resolution
-        // take a 'rewindable' iterator of the lower-res elements
-        ListIterator<T> lowerResItems = loadOrFetch(lowerRes, aStartDate, aEndDate).listIterator();
+        if (aSource.streamed) {
+            // stream the series from the warehouse, so that it can be
+            // accumulated whilst the remainder is still being retrieved
+            long started = System.currentTimeMillis();
+            try (Stream<T> lowerResData = repository.fetchStream(aSeries, aRange.getStartDate(), aRange.getEndDate())) {
+                return accumulate(aResolution, aRange.getStartDate(), aRange.getEndDate(),
+                    lowerResData.iterator(), null, aEmptyRanges);
+            } finally {
+                aSource.duration = System.currentTimeMillis() - started;
+            }
+        }
 
+        // the plan may cover more than the given range - take only the data within it
+        Iterator<T> lowerResData = aLowerData.getOrDefault(aSeries, List.of()).stream()
+            .filter(data -> !data.getStartDate().isBefore(aRange.getStartDate()))
+            .filter(data -> data.getStartDate().isBefore(aRange.getEndDate()))
+            .iterator();
+        return accumulate(aResolution, aRange.getStartDate(), aRange.getEndDate(), lowerResData,
+            (aSource.isFetch()) ? null : DateRange.merge(aLowerEmpty.getOrDefault(aSeries, List.of())),
+            aEmptyRanges);
+    }
+    /**
+     * Aggregates the given lower-resolution data, of a single series, into elements of
+     * the given resolution covering the given date range.
+     *
+     * @param aResolution the resolution to which we want to aggregate the data
+     * @param aStartDate the start of the date range to be aggregated, inclusive.
+     * @param aEndDate the end of the date range to be aggregated, exclusive.
+     * @param aLowerResData the lower-resolution data, in ascending date order.
+     * @param aLowerEmpty the merged ranges of the lower-resolution known to be empty; or
+     * null if the lower-resolution data is that of the warehouse.
+     * @param aEmptyRanges the list to which the ranges of any empty periods are added.
+     * May be null.
+     * @return the given data aggregated over the given date range at the given resolution
+     */
+    private List<T> accumulate(Resolution aResolution, Instant aStartDate, Instant aEndDate,
+                               Iterator<T> aLowerResData, List<DateRange> aLowerEmpty,
+                               List<DateRange> aEmptyRanges) {
         List<T> result = new ArrayList<>();
 
+        // take a 'rewindable' iterator of the lower-res elements
+        PushbackIterator<T> lowerResItems = new PushbackIterator<>(aLowerResData);
+
         // determine the range of one resolution period
         Instant periodStart = aResolution.roundDown(aStartDate);
         Instant periodEnd = aResolution.next(periodStart);
@@ -217,9 +1235,11 @@ public class ResolutionLoader<T extends DateRangedData> {
         // while we haven't reached the end
         while (periodStart.isBefore(aEndDate)) {
             // start a new accumulator for this period
+            Instant accumulationStart = max(aStartDate, periodStart);
+            Instant accumulationEnd = min(aEndDate, periodEnd);
             Accumulation<T> accumulation = repository.newAccumulation(aResolution,
-                max(aStartDate, periodStart),
-                min(aEndDate, periodEnd));
+                accumulationStart, accumulationEnd);
+            boolean added = false;
 
             // accumulate the lower-res elements that fit within this resolution
             while (lowerResItems.hasNext()) {
@@ -233,11 +1253,19 @@ public class ResolutionLoader<T extends DateRangedData> {
                 // if we've exceeded this period
                 if (next.getStartDate().compareTo(periodEnd) >= 0) {
                     // rewind iterator for next loop
-                    lowerResItems.previous();
+                    lowerResItems.pushback(next);
                     break;
                 }
 
                 accumulation.add(next);
+                added = true;
+            }
+
+            // the period is empty if it has no lower-res data, or that data is all empty
+            if ((aEmptyRanges != null) && ((aLowerEmpty == null)
+                ? !added
+                : DateRange.covers(aLowerEmpty, accumulationStart, accumulationEnd))) {
+                aEmptyRanges.add(new DateRange(accumulationStart, accumulationEnd));
             }
 
             // set the values in the accumulated entry and add to result
@@ -248,13 +1276,144 @@ public class ResolutionLoader<T extends DateRangedData> {
             periodEnd = aResolution.next(periodStart);
         }
 
-        if (log.isDebugEnabled()) {
-            log.debug("Accumulated data items [to: {}, from: {}, start: {}, end: {}, size: {}]",
-                aResolution, lowerRes, aStartDate, aEndDate, result.size());
+        return result;
+    }
+
+    /**
+     * Creates the (empty) elements, at the given resolution, for each period within the
+     * given ranges.
+     */
+    private List<T> emptyElements(Resolution aResolution, List<DateRange> aRanges) {
+        List<T> result = new ArrayList<>();
+        aRanges.forEach(range -> {
+            Instant periodStart = range.getStartDate();
+            while (periodStart.isBefore(range.getEndDate())) {
+                Instant periodEnd = min(range.getEndDate(), aResolution.next(periodStart));
+                result.add(repository.newAccumulation(aResolution, periodStart, periodEnd).complete());
+                periodStart = periodEnd;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns the list to which the empty ranges of the given series are to be added; or
+     * null if empty ranges are not being collected.
+     */
+    private List<DateRange> emptyRanges(Map<String, List<DateRange>> aEmptyRanges, String aSeries) {
+        return (aEmptyRanges == null) ? null : aEmptyRanges.computeIfAbsent(aSeries, k -> new ArrayList<>());
+    }
+
+    /**
+     * Adds the given empty ranges of the given series to those being collected; if any
+     * are being collected.
+     */
+    private void addEmpty(Map<String, List<DateRange>> aEmptyRanges, String aSeries, List<DateRange> aRanges) {
+        if (aEmptyRanges != null) {
+            emptyRanges(aEmptyRanges, aSeries).addAll(aRanges);
         }
+    }
+
+    /**
+     * Abandons the load, if the current thread has been interrupted; as it will be when an
+     * asynchronous load is cancelled. The interrupt status is retained, so that any blocking
+     * call made while unwinding is also abandoned.
+     *
+     * @throws CancellationException if the current thread has been interrupted.
+     */
+    private void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Load interrupted");
+        }
+    }
+
+    /**
+     * Performs the given load on the async executor; returning a future that will complete
+     * with its result. If the future completes exceptionally before the load does (i.e. it
+     * is cancelled or times out), the thread performing the load is interrupted. If the
+     * loader has been closed, the future fails with a RejectedExecutionException.
+     */
+    private <R> CompletableFuture<R> submit(Supplier<R> aLoad) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = asyncExecutor.submit(() -> {
+                try {
+                    result.complete(aLoad.get());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the loader has been closed
+            return CompletableFuture.failedFuture(e);
+        }
+
+        result.whenComplete((data, error) -> {
+            if (error != null) {
+                task.cancel(true);
+            }
+        });
         return result;
     }
 
+    /**
+     * Returns the lowest resolution from which the given resolution is accumulated; i.e.
+     * the last of its chain of lower resolutions.
+     */
+    private Resolution lowest(Resolution aResolution) {
+        Resolution result = aResolution;
+        while (result.getLower().isPresent()) {
+            result = result.getLower().get();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the total number of elements in the given map of collections.
+     */
+    private int size(Map<?, ? extends Collection<?>> aMap) {
+        return aMap.values().stream().mapToInt(Collection::size).sum();
+    }
+
+    /**
+     * An iterator that allows the last element taken to be returned, so that it will be
+     * taken again on the next call to {@link #next()}. Unlike a ListIterator, it doesn't
+     * require the elements to be held in a list; so it may be used to iterate over a
+     * stream whose elements are still arriving.
+     */
+    private static class PushbackIterator<E> implements Iterator<E> {
+        private final Iterator<E> delegate;
+        private E pushedBack;
+
+        PushbackIterator(Iterator<E> aDelegate) {
+            delegate = aDelegate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return (pushedBack != null) || (delegate.hasNext());
+        }
+
+        @Override
+        public E next() {
+            if (pushedBack != null) {
+                E result = pushedBack;
+                pushedBack = null;
+                return result;
+            }
+            return delegate.next();
+        }
+
+        /**
+         * Returns the given element, the last taken, to be taken again on the next
+         * call to {@link #next()}.
+         */
+        void pushback(E aElement) {
+            pushedBack = aElement;
+        }
+    }
+
     /**
      * Returns the max of two Instant values.
      */
@@ -3,8 +3,11 @@ package com.hillayes.accumulator;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Spliterator;
+import java.util.stream.Stream;
 
 /**
  * An interface that allows the ResolutionLoader to be agnostic as to the form of
@@ -33,42 +36,178 @@ public interface ResolutionRepository<T extends DateRangedData> {
      */
     int BATCH_SIZE = 100;
 
+    /**
+     * The series key used by those methods of the ResolutionLoader that don't take a
+     * series key. Allowing deployments with only one series to ignore series keys.
+     */
+    String DEFAULT_SERIES = "default";
+
     /**
      * Calls the warehouse repository to retrieve data for the given date range
      * at the lowest resolution.
      *
+     * @param aSeries the key of the series (partition) whose data is required
      * @param aStartDate the start of the date range to be retrieved
      * @param aEndDate the end of the date range to be retrieved
      * @return the list of data elements covering the given date range at the
      * requested resolution, in ascending date order
      */
-    List<T> fetch(Instant aStartDate, Instant aEndDate);
+    List<T> fetch(String aSeries, Instant aStartDate, Instant aEndDate);
+
+    /**
+     * Calls the warehouse repository to retrieve data of each of the given series, for
+     * the given date range at the lowest resolution.
+     * <p>
+     * The default implementation calls {@link #fetch(String, Instant, Instant)} for each
+     * series in turn. Implementations able to fetch many series together should override
+     * this.
+     *
+     * @param aSeries the keys of the series (partitions) whose data is required
+     * @param aStartDate the start of the date range to be retrieved
+     * @param aEndDate the end of the date range to be retrieved
+     * @return the lists of data elements covering the given date range at the
+     * lowest resolution, in ascending date order, keyed on series
+     */
+    default Map<String, List<T>> fetch(Collection<String> aSeries, Instant aStartDate, Instant aEndDate) {
+        Map<String, List<T>> result = new HashMap<>();
+        aSeries.forEach(key -> result.put(key, fetch(key, aStartDate, aEndDate)));
+        return result;
+    }
+
+    /**
+     * Calls the warehouse repository to retrieve data for the given date range
+     * at the lowest resolution, as a stream whose elements can be consumed as
+     * they arrive.
+     * <p>
+     * The default implementation streams the result of {@link #fetch(String, Instant, Instant)}.
+     * Implementations able to deliver the data progressively should override this, to
+     * allow the ResolutionLoader to accumulate the data whilst the remainder is still
+     * being retrieved. The ResolutionLoader will close the stream once consumed.
+     *
+     * @param aSeries the key of the series (partition) whose data is required
+     * @param aStartDate the start of the date range to be retrieved
+     * @param aEndDate the end of the date range to be retrieved
+     * @return the stream of data elements covering the given date range at the
+     * lowest resolution, in ascending date order
+     */
+    default Stream<T> fetchStream(String aSeries, Instant aStartDate, Instant aEndDate) {
+        return fetch(aSeries, aStartDate, aEndDate).stream();
+    }
 
     /**
      * Calls the local repository to retrieve data for the given date range
      * at the given resolution.
      *
+     * @param aSeries the key of the series (partition) whose data is required
      * @param aResolution the resolution at which the data is required
      * @param aStartDate the start of the date range to be retrieved
      * @param aEndDate the end of the date range to be retrieved
      * @return the list of data elements covering the given date range at the
      * requested resolution, in ascending date order
      */
-    List<T> get(Resolution aResolution,
+    List<T> get(String aSeries,
+                Resolution aResolution,
                 Instant aStartDate,
                 Instant aEndDate);
 
+    /**
+     * Calls the local repository to retrieve data of each of the given series, for the
+     * given date range at the given resolution.
+     * <p>
+     * The default implementation calls {@link #get(String, Resolution, Instant, Instant)}
+     * for each series in turn. Implementations able to read many series in a single query
+     * should override this.
+     *
+     * @param aSeries the keys of the series (partitions) whose data is required
+     * @param aResolution the resolution at which the data is required
+     * @param aStartDate the start of the date range to be retrieved
+     * @param aEndDate the end of the date range to be retrieved
+     * @return the lists of data elements covering the given date range at the
+     * requested resolution, in ascending date order, keyed on series
+     */
+    default Map<String, List<T>> get(Collection<String> aSeries,
+                                     Resolution aResolution,
+                                     Instant aStartDate,
+                                     Instant aEndDate) {
+        Map<String, List<T>> result = new HashMap<>();
+        aSeries.forEach(key -> result.put(key, get(key, aResolution, aStartDate, aEndDate)));
+        return result;
+    }
+
+    /**
+     * Calls the local repository to retrieve the ranges, at the given resolution and
+     * within the given date range, that are known to contain no data. The ResolutionLoader
+     * will not ask the warehouse for data in these ranges.
+     * <p>
+     * The default implementation records no empty ranges; so the empty elements of each
+     * resolution will be persisted as any other.
+     *
+     * @param aSeries the key of the series (partition) whose empty ranges are required
+     * @param aResolution the resolution of the empty ranges
+     * @param aStartDate the start of the date range to be retrieved
+     * @param aEndDate the end of the date range to be retrieved
+     * @return the empty ranges within the given date range, in ascending date order
+     */
+    default List<DateRange> getEmpty(String aSeries,
+                                     Resolution aResolution,
+                                     Instant aStartDate,
+                                     Instant aEndDate) {
+        return List.of();
+    }
+
+    /**
+     * Calls the local repository to retrieve the ranges of each of the given series, at
+     * the given resolution and within the given date range, that are known to contain no
+     * data.
+     * <p>
+     * The default implementation calls {@link #getEmpty(String, Resolution, Instant, Instant)}
+     * for each series in turn.
+     *
+     * @param aSeries the keys of the series (partitions) whose empty ranges are required
+     * @param aResolution the resolution of the empty ranges
+     * @param aStartDate the start of the date range to be retrieved
+     * @param aEndDate the end of the date range to be retrieved
+     * @return the empty ranges within the given date range, in ascending date order,
+     * keyed on series
+     */
+    default Map<String, List<DateRange>> getEmpty(Collection<String> aSeries,
+                                                  Resolution aResolution,
+                                                  Instant aStartDate,
+                                                  Instant aEndDate) {
+        Map<String, List<DateRange>> result = new HashMap<>();
+        aSeries.forEach(key -> result.put(key, getEmpty(key, aResolution, aStartDate, aEndDate)));
+        return result;
+    }
+
+    /**
+     * Calls the local repository to record the given ranges, at the given resolution,
+     * as containing no data. Each range covers one or more whole, closed periods of the
+     * resolution. Implementations should store these compactly; merging them with any
+     * adjacent ranges (see {@link EmptyRanges}).
+     *
+     * @param aSeries the key of the series (partition) to which the ranges belong.
+     * @param aResolution the resolution of the empty ranges.
+     * @param aRanges the empty ranges, in ascending date order.
+     * @return true if the ranges were recorded, in which case the ResolutionLoader
+     * will not persist the empty elements within them. The default implementation
+     * returns false.
+     */
+    default boolean saveEmpty(String aSeries, Resolution aResolution, List<DateRange> aRanges) {
+        return false;
+    }
+
     /**
      * Calls the local repository to save (insert) the given collection of data,
      * and return the same collection.
      * <p>
      * The default implementation will divide the given collection into batches
-     * and call the {@link #saveBatch(Spliterator)} for each batch.
+     * and call the {@link #saveBatch(String, Spliterator)} for each batch.
      *
+     * @param aSeries the key of the series (partition) to which the data belongs.
      * @param aDataList the data to be inserted into the local repository.
      * @return the same data, or one that contains the equivalent elements.
      */
-    default Collection<T> save(Collection<T> aDataList) {
+    default Collection<T> save(String aSeries, Collection<T> aDataList) {
         // divide list into batches of no more than batchSize
         Spliterator<T> split = aDataList.spliterator();
         List<Spliterator<T>> batches = new ArrayList<>();
@@ -80,7 +219,7 @@ public interface ResolutionRepository<T extends DateRangedData> {
         }
 
         // save each batch
-        batches.forEach(this::saveBatch);
+        batches.forEach(batch -> saveBatch(aSeries, batch));
 
         // return results immediately
         return aDataList;
@@ -88,7 +227,7 @@ public interface ResolutionRepository<T extends DateRangedData> {
 
     /**
      * Calls the local repository to save (insert) the given batch of data. This is only
-     * called by the default implementation of {@link #save(Collection)}.
+     * called by the default implementation of {@link #save(String, Collection)}.
      * <p>
      * The implementor may choose to save the batch asynchronously, using an ExecutionService,
      * and without the use of transactions.
@@ -98,9 +237,10 @@ public interface ResolutionRepository<T extends DateRangedData> {
      * <p>
      * Without transactions, other threads can read the data as each batch is completed.
      *
+     * @param aSeries the key of the series (partition) to which the data belongs.
      * @param aBatch the batch of data to be inserted into the local repository.
      */
-    void saveBatch(Spliterator<T> aBatch);
+    void saveBatch(String aSeries, Spliterator<T> aBatch);
 
     /**
      * Tests whether there are any batches currently pending to be saved.
@@ -121,7 +261,7 @@ public interface ResolutionRepository<T extends DateRangedData> {
      * can then create a new record of the given resolution with the accumulated values.
      * <p>
      * The ResolutionLoader gather these new records and, at some point, call the
-     * {@link ResolutionRepository#save(Collection)} to persist them.
+     * {@link ResolutionRepository#save(String, Collection)} to persist them.
      *
      * @param aResolution the resolution of the new data element to be created.
      * @param aStartDate the start date of the new data element.
@@ -0,0 +1,227 @@
+package com.hillayes.accumulator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accepts new data of the lowest resolution as it arrives, and maintains a running
+ * aggregate of the currently open period of each series and resolution. The ResolutionLoader
+ * uses these running aggregates for the trailing, partial period of any request that
+ * extends to the latest data; rather than re-accumulating that partial period from
+ * lower resolutions on every request.
+ * <p>
+ * When a new record falls into the next period of a resolution, the running aggregate
+ * of the previous period is discarded; it is not persisted. The ingested records give
+ * no proof that the period is complete: a record may never have arrived, or have
+ * arrived late and been ignored. Persisting the aggregate would make such a period
+ * appear materialized, so it would never be corrected. Closed periods are left to be
+ * materialized by the ResolutionLoader, from the lower resolutions or the warehouse.
+ * <p>
+ * A running aggregate is updated by accumulating its current value with each new
+ * record. This relies on the Accumulation being associative; that is, accumulating
+ * a previously accumulated element gives the same result as accumulating each of
+ * the elements from which it was accumulated. This is the case for the totals and
+ * counts for which the ResolutionLoader is intended.
+ * <p>
+ * Instances are obtained from {@link ResolutionLoader#startIngestion(Resolution)}.
+ *
+ * @param <T> the class of DateRangedData to be aggregated.
+ */
+@Slf4j
+public class RunningAggregates<T extends DateRangedData> {
+    private final ResolutionLoader<T> loader;
+    private final ResolutionRepository<T> repository;
+
+    /**
+     * The resolutions to be aggregated; in ascending order, the lowest first.
+     */
+    private final List<Resolution> resolutions;
+
+    /**
+     * The running aggregate of the currently open period of each resolution, keyed
+     * on series.
+     */
+    private final Map<String, Map<Resolution, Running<T>>> open = new HashMap<>();
+
+    RunningAggregates(ResolutionLoader<T> aLoader,
+                      ResolutionRepository<T> aRepository,
+                      Resolution aHighest) {
+        loader = aLoader;
+        repository = aRepository;
+
+        List<Resolution> list = new ArrayList<>();
+        for (Resolution resolution = aHighest; resolution != null; resolution = resolution.getLower().orElse(null)) {
+            list.add(0, resolution);
+        }
+        resolutions = List.copyOf(list);
+    }
+
+    /**
+     * Adds the given record, of the lowest resolution, to the running aggregates of the
+     * periods in which it falls. Records must be ingested in ascending date order; any
+     * record that precedes the latest ingested will be ignored.
+     *
+     * @param aRecord the new record of the lowest resolution.
+     */
+    public void ingest(T aRecord) {
+        ingest(ResolutionRepository.DEFAULT_SERIES, aRecord);
+    }
+
+    /**
+     * As {@link #ingest(DateRangedData)}, but adds the record to the running aggregates
+     * of the series (partition) identified by the given key.
+     * <p>
+     * If the record opens a new period, the period's running aggregate is seeded with any
+     * data preceding the record. Seeding is a load, which may require data from the
+     * warehouse; so it is performed without holding the lock that guards the running
+     * aggregates, and ingestion (and the loads that use the aggregates) can continue.
+     *
+     * @param aSeries the key of the series to which the record belongs.
+     * @param aRecord the new record of the lowest resolution.
+     */
+    public void ingest(String aSeries, T aRecord) {
+        Map<Resolution, Running<T>> seeds = new HashMap<>();
+        while (true) {
+            List<Resolution> unseeded;
+            synchronized (this) {
+                unseeded = unseeded(aSeries, aRecord, seeds);
+                if (unseeded.isEmpty()) {
+                    accumulate(aSeries, aRecord, seeds);
+                    return;
+                }
+            }
+
+            unseeded.forEach(resolution -> seeds.put(resolution,
+                seed(aSeries, resolution, resolution.roundDown(aRecord.getStartDate()), aRecord.getStartDate())));
+        }
+    }
+
+    /**
+     * Returns the resolutions at which the given record opens a new period, for which
+     * no seed is yet given. None if the record is late.
+     */
+    private List<Resolution> unseeded(String aSeries, T aRecord, Map<Resolution, Running<T>> aSeeds) {
+        Map<Resolution, Running<T>> seriesOpen = open.getOrDefault(aSeries, Map.of());
+        List<Resolution> result = new ArrayList<>();
+        for (Resolution resolution : resolutions) {
+            Running<T> running = seriesOpen.get(resolution);
+            if ((running != null) && (aRecord.getStartDate().isBefore(running.watermark))) {
+                return List.of();
+            }
+
+            Instant periodStart = resolution.roundDown(aRecord.getStartDate());
+            if (((running == null) || (!running.startDate.equals(periodStart)))
+                && (!aSeeds.containsKey(resolution))) {
+                result.add(resolution);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds the given record to the running aggregates of the periods in which it falls;
+     * closing any previous periods, and opening the new periods with the given seeds.
+     */
+    private void accumulate(String aSeries, T aRecord, Map<Resolution, Running<T>> aSeeds) {
+        Map<Resolution, Running<T>> seriesOpen = open.computeIfAbsent(aSeries, k -> new HashMap<>());
+        for (Resolution resolution : resolutions) {
+            Instant periodStart = resolution.roundDown(aRecord.getStartDate());
+            Running<T> running = seriesOpen.get(resolution);
+
+            if ((running != null) && (aRecord.getStartDate().isBefore(running.watermark))) {
+                log.warn("Ignoring late record [series: {}, resolution: {}, start: {}, watermark: {}]",
+                    aSeries, resolution, aRecord.getStartDate(), running.watermark);
+                return;
+            }
+
+            // if the record falls into a new period
+            if ((running == null) || (!running.startDate.equals(periodStart))) {
+                if ((running != null) && (log.isDebugEnabled())) {
+                    log.debug("Closing running aggregate [series: {}, resolution: {}, start: {}, end: {}]",
+                        aSeries, resolution, running.startDate, resolution.next(running.startDate));
+                }
+
+                running = aSeeds.get(resolution);
+                seriesOpen.put(resolution, running);
+            }
+
+            // accumulate the record with the current running value
+            Accumulation<T> accumulation = repository.newAccumulation(resolution,
+                running.startDate, aRecord.getEndDate());
+            if (running.value != null) {
+                accumulation.add(running.value);
+            }
+            accumulation.add(aRecord);
+
+            running.value = accumulation.complete();
+            running.watermark = aRecord.getEndDate();
+        }
+    }
+
+    /**
+     * Returns the running aggregate of the open period, of the given series and resolution,
+     * that starts at the given date - provided it covers all the data up to the given end
+     * date. That is, its watermark has reached the last boundary of the lowest resolution
+     * before the end date, but not passed the end date. The result will be null if no such
+     * running aggregate is held.
+     *
+     * @param aSeries the key of the series whose aggregate is required.
+     * @param aResolution the resolution of the aggregate required.
+     * @param aStartDate the start of the period, inclusive.
+     * @param aEndDate the end of the partial period required, exclusive.
+     * @return the running aggregate, or null.
+     */
+    synchronized T get(String aSeries, Resolution aResolution, Instant aStartDate, Instant aEndDate) {
+        Map<Resolution, Running<T>> seriesOpen = open.get(aSeries);
+        Running<T> running = (seriesOpen == null) ? null : seriesOpen.get(aResolution);
+        if ((running == null) || (running.value == null) || (!running.startDate.equals(aStartDate))) {
+            return null;
+        }
+
+        // the aggregate cannot be used if it includes data beyond the end date
+        if (aEndDate.isBefore(running.watermark)) {
+            return null;
+        }
+
+        // nor if it lags the end date
+        if (running.watermark.isBefore(resolutions.get(0).roundDown(aEndDate))) {
+            return null;
+        }
+
+        return running.value;
+    }
+
+    /**
+     * Creates the running aggregate for the period starting at the given date. If the
+     * first record of the period doesn't fall on its start, the aggregate is seeded with
+     * the data preceding that record.
+     */
+    private Running<T> seed(String aSeries, Resolution aResolution, Instant aPeriodStart, Instant aFirstRecord) {
+        Running<T> result = new Running<>(aPeriodStart);
+        if (aPeriodStart.isBefore(aFirstRecord)) {
+            log.debug("Seeding running aggregate [series: {}, resolution: {}, start: {}, end: {}]",
+                aSeries, aResolution, aPeriodStart, aFirstRecord);
+            List<T> preceding = loader.load(aSeries, aResolution, aPeriodStart, aFirstRecord);
+            if (!preceding.isEmpty()) {
+                result.value = preceding.get(0);
+            }
+        }
+        return result;
+    }
+
+    private static class Running<T> {
+        private final Instant startDate;
+        private Instant watermark;
+        private T value;
+
+        Running(Instant aStartDate) {
+            startDate = aStartDate;
+            watermark = aStartDate;
+        }
+    }
+}
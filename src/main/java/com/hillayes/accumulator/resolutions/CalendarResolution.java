@@ -6,6 +6,7 @@ import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.Optional;
 
 public enum CalendarResolution implements Resolution {
@@ -24,6 +25,21 @@ public enum CalendarResolution implements Resolution {
         return lower;
     }
 
+    /**
+     * Returns the Resolutions from which this one may be accumulated. As the days of
+     * {@link DefaultResolution} are also UTC days, a MONTH may be accumulated from those
+     * when its own DAYs are missing.
+     *
+     * @return the Resolutions from which this one may be accumulated.
+     */
+    @Override
+    public List<Resolution> getSources() {
+        if (this == MONTH) {
+            return List.of(DAY, DefaultResolution.DAY);
+        }
+        return Resolution.super.getSources();
+    }
+
     private ZonedDateTime _roundDown(Instant aInstant) {
         ZonedDateTime zonedDateTime = ZonedDateTime.ofInstant(aInstant, ZoneOffset.UTC)
             .truncatedTo(ChronoUnit.DAYS);
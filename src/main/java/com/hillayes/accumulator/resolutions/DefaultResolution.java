@@ -27,6 +27,7 @@ import com.hillayes.accumulator.Resolution;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalUnit;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -66,6 +67,20 @@ public enum DefaultResolution implements Resolution {
         return lower;
     }
 
+    /**
+     * Returns the Resolutions from which this one may be accumulated. A WEEK may also
+     * be accumulated directly from HOURs, when its DAYs are missing.
+     *
+     * @return the Resolutions from which this one may be accumulated.
+     */
+    @Override
+    public List<Resolution> getSources() {
+        if (this == WEEK) {
+            return List.of(DAY, HOUR);
+        }
+        return Resolution.super.getSources();
+    }
+
     /**
      * Rounds the given Instant DOWN to this Resolution.
      *
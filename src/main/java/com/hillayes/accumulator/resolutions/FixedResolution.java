@@ -0,0 +1,146 @@
+package com.hillayes.accumulator.resolutions;
+
+import com.hillayes.accumulator.Resolution;
+import lombok.EqualsAndHashCode;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A Resolution of periods of a fixed duration; such as 5, 15 or 30 minutes, or 6 hours.
+ * The periods are aligned to the epoch, plus an optional offset (as the WEEK of
+ * {@link DefaultResolution} is offset to start on a Monday). Their boundaries are
+ * calculated using only long arithmetic on the epoch seconds.
+ * <p>
+ * A FixedResolution may be accumulated from any finer Resolution whose periods divide
+ * its own evenly. Its sources are given in order of preference; typically the coarsest
+ * first, as that requires the fewest elements to be read.
+ * <p>
+ * Instances are identified by their name; which is used to persist their data.
+ */
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public final class FixedResolution implements Resolution {
+    public static final FixedResolution FIVE_MINUTES =
+        new FixedResolution("FIVE_MINUTES", Duration.ofMinutes(5), DefaultResolution.MINUTE);
+
+    public static final FixedResolution FIFTEEN_MINUTES =
+        new FixedResolution("FIFTEEN_MINUTES", Duration.ofMinutes(15), Duration.ZERO,
+            List.of(FIVE_MINUTES, DefaultResolution.MINUTE));
+
+    public static final FixedResolution THIRTY_MINUTES =
+        new FixedResolution("THIRTY_MINUTES", Duration.ofMinutes(30), Duration.ZERO,
+            List.of(FIFTEEN_MINUTES, FIVE_MINUTES, DefaultResolution.MINUTE));
+
+    public static final FixedResolution SIX_HOURS =
+        new FixedResolution("SIX_HOURS", Duration.ofHours(6), DefaultResolution.HOUR);
+
+    @EqualsAndHashCode.Include
+    private final String name;
+
+    /**
+     * The length of each period, in seconds.
+     */
+    private final long period;
+
+    /**
+     * The offset of the period boundaries from the epoch, in seconds.
+     */
+    private final long offset;
+
+    private final List<Resolution> sources;
+
+    /**
+     * Creates a Resolution, aligned to the epoch, that is accumulated from the given
+     * lower Resolution.
+     *
+     * @param aName the name that identifies the Resolution.
+     * @param aPeriod the length of each period; a whole number of seconds.
+     * @param aLower the immediate lower Resolution. Null if this is the lowest.
+     */
+    public FixedResolution(String aName, Duration aPeriod, Resolution aLower) {
+        this(aName, aPeriod, Duration.ZERO, (aLower == null) ? List.of() : List.of(aLower));
+    }
+
+    /**
+     * @param aName the name that identifies the Resolution.
+     * @param aPeriod the length of each period; a whole number of seconds.
+     * @param aOffset the offset of the period boundaries from the epoch; a whole number
+     * of seconds.
+     * @param aSources the Resolutions from which this may be accumulated, in order of
+     * preference. The first is taken as the immediate lower Resolution.
+     * @throws IllegalArgumentException if the period or offset are not whole seconds, or
+     * if the periods of any source don't divide the periods of this Resolution evenly.
+     */
+    public FixedResolution(String aName, Duration aPeriod, Duration aOffset, List<Resolution> aSources) {
+        if ((aPeriod.getNano() != 0) || (aPeriod.getSeconds() <= 0)) {
+            throw new IllegalArgumentException("Period must be a positive whole number of seconds: " + aPeriod);
+        }
+        if (aOffset.getNano() != 0) {
+            throw new IllegalArgumentException("Offset must be a whole number of seconds: " + aOffset);
+        }
+
+        name = aName;
+        period = aPeriod.getSeconds();
+        offset = Math.floorMod(aOffset.getSeconds(), period);
+        sources = List.copyOf(aSources);
+
+        // each source must have a boundary at each of this resolution's boundaries
+        Instant boundary = Instant.ofEpochSecond(offset);
+        for (Resolution source : sources) {
+            if ((!source.roundDown(boundary).equals(boundary))
+                || (!source.roundDown(next(boundary)).equals(next(boundary)))) {
+                throw new IllegalArgumentException("Resolution " + source.name()
+                    + " does not divide " + aName + " evenly");
+            }
+        }
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Optional<Resolution> getLower() {
+        return sources.stream().findFirst();
+    }
+
+    @Override
+    public List<Resolution> getSources() {
+        return sources;
+    }
+
+    @Override
+    public Instant roundDown(Instant aInstant) {
+        return Instant.ofEpochSecond(floor(aInstant.getEpochSecond()));
+    }
+
+    @Override
+    public Instant roundUp(Instant aInstant) {
+        long seconds = aInstant.getEpochSecond();
+        long result = floor(seconds);
+        if ((result == seconds) && (aInstant.getNano() == 0)) {
+            return aInstant;
+        }
+        return Instant.ofEpochSecond(result + period);
+    }
+
+    @Override
+    public Instant next(Instant aInstant) {
+        return Instant.ofEpochSecond(floor(aInstant.getEpochSecond()) + period);
+    }
+
+    /**
+     * Returns the boundary, in epoch seconds, at or before the given epoch seconds.
+     */
+    private long floor(long aEpochSeconds) {
+        return Math.floorDiv(aEpochSeconds - offset, period) * period + offset;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
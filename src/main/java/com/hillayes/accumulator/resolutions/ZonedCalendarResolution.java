@@ -0,0 +1,239 @@
+package com.hillayes.accumulator.resolutions;
+
+import com.hillayes.accumulator.Resolution;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The calendar resolutions (as {@link CalendarResolution}) of a given time-zone. Each
+ * period starts at the start of a day in that zone; allowing for daylight-saving
+ * transitions, so a DAY may be 23 or 25 hours long.
+ * <p>
+ * The period boundaries between {@link #TABLE_START} and {@link #TABLE_END} are computed
+ * once, into a sorted table of epoch seconds. So rounding an instant within that range is
+ * a binary search of the table; rather than the construction of ZonedDateTimes. Instants
+ * outside that range are rounded by way of ZonedDateTimes.
+ * <p>
+ * Instances are obtained from {@link #of(ZoneId, Unit)}, and are shared; so the table of
+ * each zone and unit is computed only once.
+ */
+public final class ZonedCalendarResolution implements Resolution {
+    /**
+     * The first year whose boundaries are held in the table.
+     */
+    public static final int TABLE_START = 1970;
+
+    /**
+     * The year following the last whose boundaries are held in the table.
+     */
+    public static final int TABLE_END = 2100;
+
+    private static final Map<String, ZonedCalendarResolution> INSTANCES = new ConcurrentHashMap<>();
+
+    /**
+     * The units of the calendar resolutions.
+     */
+    public enum Unit {
+        DAY(ChronoUnit.DAYS),
+        MONTH(ChronoUnit.MONTHS),
+        YEAR(ChronoUnit.YEARS);
+
+        private final ChronoUnit chronoUnit;
+
+        Unit(ChronoUnit aChronoUnit) {
+            chronoUnit = aChronoUnit;
+        }
+    }
+
+    private final ZoneId zone;
+    private final Unit unit;
+    private final String name;
+
+    /**
+     * The period boundaries, in ascending epoch seconds. Computed on first use.
+     */
+    private volatile long[] boundaries;
+
+    private ZonedCalendarResolution(ZoneId aZone, Unit aUnit) {
+        zone = aZone;
+        unit = aUnit;
+        name = aUnit.name() + "@" + aZone.getId();
+    }
+
+    /**
+     * Returns the calendar resolution of the given unit in the given time-zone.
+     *
+     * @param aZone the time-zone in which the periods start.
+     * @param aUnit the unit of the periods.
+     * @return the shared instance for that zone and unit.
+     */
+    public static ZonedCalendarResolution of(ZoneId aZone, Unit aUnit) {
+        return INSTANCES.computeIfAbsent(aUnit.name() + "@" + aZone.getId(),
+            k -> new ZonedCalendarResolution(aZone, aUnit));
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    public Unit getUnit() {
+        return unit;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the immediate lower resolution of the same zone. As with CalendarResolution,
+     * DAY is the lowest.
+     */
+    @Override
+    public Optional<Resolution> getLower() {
+        return switch (unit) {
+            case DAY -> Optional.empty();
+            case MONTH -> Optional.of(of(zone, Unit.DAY));
+            case YEAR -> Optional.of(of(zone, Unit.MONTH));
+        };
+    }
+
+    /**
+     * Returns the resolutions from which this one may be accumulated. As every month
+     * starts on a day, a YEAR may also be accumulated directly from DAYs.
+     */
+    @Override
+    public List<Resolution> getSources() {
+        if (unit == Unit.YEAR) {
+            return List.of(of(zone, Unit.MONTH), of(zone, Unit.DAY));
+        }
+        return Resolution.super.getSources();
+    }
+
+    @Override
+    public Instant roundDown(Instant aInstant) {
+        long[] table = table();
+        long seconds = aInstant.getEpochSecond();
+        int index = Arrays.binarySearch(table, seconds);
+        if (index >= 0) {
+            return Instant.ofEpochSecond(table[index]);
+        }
+
+        // the index of the boundary preceding the instant - which must have a boundary
+        // in the table following it
+        index = -index - 2;
+        if ((index < 0) || (index >= table.length - 1)) {
+            return truncate(aInstant);
+        }
+        return Instant.ofEpochSecond(table[index]);
+    }
+
+    @Override
+    public Instant roundUp(Instant aInstant) {
+        long[] table = table();
+        long seconds = aInstant.getEpochSecond();
+        int index = Arrays.binarySearch(table, seconds);
+        if ((index >= 0) && (aInstant.getNano() == 0)) {
+            return aInstant;
+        }
+        return following(table, index, aInstant);
+    }
+
+    @Override
+    public Instant next(Instant aInstant) {
+        long[] table = table();
+        return following(table, Arrays.binarySearch(table, aInstant.getEpochSecond()), aInstant);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object aOther) {
+        return (this == aOther)
+            || ((aOther instanceof ZonedCalendarResolution other) && (name.equals(other.name)));
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    /**
+     * Returns the first boundary after the given instant.
+     *
+     * @param aTable the boundaries.
+     * @param aSearchIndex the result of the binary search for the instant's epoch seconds.
+     * @param aInstant the instant.
+     */
+    private Instant following(long[] aTable, int aSearchIndex, Instant aInstant) {
+        int index = (aSearchIndex >= 0) ? aSearchIndex + 1 : -aSearchIndex - 1;
+        if ((index == 0) || (index >= aTable.length)) {
+            return plusOne(truncate(aInstant));
+        }
+        return Instant.ofEpochSecond(aTable[index]);
+    }
+
+    /**
+     * Returns the table of boundaries; computing it on first use.
+     */
+    private long[] table() {
+        long[] result = boundaries;
+        if (result == null) {
+            synchronized (this) {
+                result = boundaries;
+                if (result == null) {
+                    result = computeTable();
+                    boundaries = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private long[] computeTable() {
+        LocalDate date = LocalDate.of(TABLE_START, 1, 1);
+        LocalDate end = LocalDate.of(TABLE_END, 1, 1);
+
+        long[] result = new long[(int) unit.chronoUnit.between(date, end) + 1];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = date.atStartOfDay(zone).toEpochSecond();
+            date = date.plus(1, unit.chronoUnit);
+        }
+        return result;
+    }
+
+    /**
+     * Rounds the given instant down to the start of its period; without the table.
+     */
+    private Instant truncate(Instant aInstant) {
+        LocalDate date = LocalDate.ofInstant(aInstant, zone);
+        date = switch (unit) {
+            case DAY -> date;
+            case MONTH -> date.withDayOfMonth(1);
+            case YEAR -> date.withDayOfYear(1);
+        };
+        return date.atStartOfDay(zone).toInstant();
+    }
+
+    /**
+     * Returns the start of the period following that which starts at the given instant;
+     * without the table.
+     */
+    private Instant plusOne(Instant aPeriodStart) {
+        return LocalDate.ofInstant(aPeriodStart, zone)
+            .plus(1, unit.chronoUnit)
+            .atStartOfDay(zone)
+            .toInstant();
+    }
+}
@@ -0,0 +1,131 @@
+package com.hillayes.accumulator.mocks;
+
+import com.hillayes.accumulator.Backfill;
+import com.hillayes.accumulator.CheckpointStore;
+import com.hillayes.accumulator.LoaderConfig;
+import com.hillayes.accumulator.ResolutionLoader;
+import com.hillayes.accumulator.resolutions.DefaultResolution;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class BackfillTest {
+    @Test
+    public void testAllResolutionsAreMaterialized() throws Exception {
+        MockResolutionRepository repository = new MockResolutionRepository();
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+        MockCheckpointStore checkpoints = new MockCheckpointStore();
+
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant start = end.minus(4, ChronoUnit.DAYS);
+
+        Backfill<MockDateRangedData> backfill = new Backfill<>(loader, checkpoints, Duration.ofDays(1), 2, Duration.ZERO);
+        Instant completed = backfill.run("job", List.of(MockResolutionRepository.DEFAULT_SERIES),
+            List.of(DefaultResolution.DAY, DefaultResolution.HOUR), start, end);
+
+        assertEquals(end, completed);
+        assertEquals(Optional.of(end), checkpoints.get("job"));
+        assertEquals(4 * 24, repository.getAll(DefaultResolution.HOUR).size());
+        assertEquals(4, repository.getAll(DefaultResolution.DAY).size());
+    }
+
+    @Test
+    public void testNothingIsReadAheadBeyondTheRange() throws Exception {
+        // a repository that records any fetch beyond the backfill range
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(2, ChronoUnit.DAYS);
+        Instant start = end.minus(4, ChronoUnit.DAYS);
+        AtomicBoolean outside = new AtomicBoolean();
+        MockResolutionRepository repository = new MockResolutionRepository() {
+            @Override
+            public List<MockDateRangedData> fetch(String aSeries, Instant aStartDate, Instant aEndDate) {
+                if ((aStartDate.isBefore(start)) || (aEndDate.isAfter(end))) {
+                    outside.set(true);
+                }
+                return super.fetch(aSeries, aStartDate, aEndDate);
+            }
+        };
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository,
+            LoaderConfig.builder().readAheadThreads(1).build());
+
+        Backfill<MockDateRangedData> backfill = new Backfill<>(loader, new MockCheckpointStore(),
+            Duration.ofDays(1), 2, Duration.ZERO);
+        assertEquals(end, backfill.run("job", List.of(MockResolutionRepository.DEFAULT_SERIES),
+            List.of(DefaultResolution.DAY), start, end));
+
+        // give any read-ahead the chance to run
+        Thread.sleep(500);
+        assertFalse(outside.get());
+        assertEquals(4, repository.getAll(DefaultResolution.DAY).size());
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+        // a repository that counts the fetches from the warehouse, and may fail them
+        AtomicInteger fetchCount = new AtomicInteger();
+        AtomicBoolean failing = new AtomicBoolean();
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant start = end.minus(4, ChronoUnit.DAYS);
+        Instant failAt = start.plus(2, ChronoUnit.DAYS);
+
+        MockResolutionRepository repository = new MockResolutionRepository() {
+            @Override
+            public List<MockDateRangedData> fetch(String aSeries, Instant aStartDate, Instant aEndDate) {
+                if ((failing.get()) && (aStartDate.equals(failAt))) {
+                    throw new IllegalStateException("Warehouse unavailable");
+                }
+                fetchCount.incrementAndGet();
+                return super.fetch(aSeries, aStartDate, aEndDate);
+            }
+        };
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+        MockCheckpointStore checkpoints = new MockCheckpointStore();
+        Backfill<MockDateRangedData> backfill = new Backfill<>(loader, checkpoints, Duration.ofDays(1), 1, Duration.ZERO);
+
+        // the checkpoint stops at the failed chunk
+        failing.set(true);
+        Instant completed = backfill.run("job", List.of(MockResolutionRepository.DEFAULT_SERIES),
+            List.of(DefaultResolution.DAY), start, end);
+        assertEquals(failAt, completed);
+        assertEquals(Optional.of(failAt), checkpoints.get("job"));
+        assertEquals(3, fetchCount.get());
+
+        // the job resumes from the checkpoint; only the failed chunk requiring a fetch
+        failing.set(false);
+        fetchCount.set(0);
+        completed = backfill.run("job", List.of(MockResolutionRepository.DEFAULT_SERIES),
+            List.of(DefaultResolution.DAY), start, end);
+        assertEquals(end, completed);
+        assertEquals(1, fetchCount.get());
+        assertEquals(4, repository.getAll(DefaultResolution.DAY).size());
+
+        // a completed job has nothing to do
+        assertEquals(end, backfill.run("job", List.of(MockResolutionRepository.DEFAULT_SERIES),
+            List.of(DefaultResolution.DAY), start, end));
+        assertEquals(1, fetchCount.get());
+    }
+
+    private static class MockCheckpointStore implements CheckpointStore {
+        private final Map<String, Instant> checkpoints = new ConcurrentHashMap<>();
+
+        @Override
+        public Optional<Instant> get(String aJob) {
+            return Optional.ofNullable(checkpoints.get(aJob));
+        }
+
+        @Override
+        public void put(String aJob, Instant aCompleted) {
+            checkpoints.put(aJob, aCompleted);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.hillayes.accumulator.mocks;
+
+import com.hillayes.accumulator.MaterializationScheduler;
+import com.hillayes.accumulator.Resolution;
+import com.hillayes.accumulator.ResolutionLoader;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MaterializationSchedulerTest {
+    /**
+     * A resolution of one second, so that periods close frequently.
+     */
+    private static final Resolution SECOND = new Resolution() {
+        @Override
+        public String name() {
+            return "SECOND";
+        }
+
+        @Override
+        public Optional<Resolution> getLower() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Instant roundDown(Instant aInstant) {
+            return aInstant.truncatedTo(ChronoUnit.SECONDS);
+        }
+
+        @Override
+        public Instant roundUp(Instant aInstant) {
+            Instant result = roundDown(aInstant);
+            return result.equals(aInstant) ? result : result.plusSeconds(1);
+        }
+
+        @Override
+        public Instant next(Instant aInstant) {
+            return roundDown(aInstant).plusSeconds(1);
+        }
+    };
+
+    @Test
+    public void testClosedPeriodsAreMaterialized() {
+        MockResolutionRepository repository = new MockResolutionRepository();
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+
+        MaterializationScheduler<MockDateRangedData> scheduler =
+            new MaterializationScheduler<>(loader, List.of(SECOND), Duration.ofMillis(50), 2);
+        scheduler.start();
+        try {
+            Awaitility.await().atMost(Duration.ofSeconds(5)).pollInterval(Duration.ofMillis(100))
+                .until(() -> repository.getAll(SECOND).size() >= 2);
+        } finally {
+            scheduler.stop();
+        }
+
+        // each materialized period is a whole, closed period
+        repository.getAll(SECOND).forEach(data -> {
+            assertEquals(SECOND.roundDown(data.getStartDate()), data.getStartDate());
+            assertEquals(SECOND.next(data.getStartDate()), data.getEndDate());
+        });
+    }
+
+    @Test
+    public void testMaterializationContinuesAfterFailure() {
+        // a repository that fails the first time it is read
+        AtomicBoolean failed = new AtomicBoolean();
+        MockResolutionRepository repository = new MockResolutionRepository() {
+            @Override
+            public List<MockDateRangedData> get(String aSeries, Resolution aResolution,
+                                                Instant aStartDate, Instant aEndDate) {
+                if (failed.compareAndSet(false, true)) {
+                    throw new IllegalStateException("Repository unavailable");
+                }
+                return super.get(aSeries, aResolution, aStartDate, aEndDate);
+            }
+        };
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+
+        MaterializationScheduler<MockDateRangedData> scheduler =
+            new MaterializationScheduler<>(loader, List.of(SECOND), Duration.ofMillis(50), 2);
+        scheduler.start();
+        try {
+            // the periods following the failed one are still materialized
+            Awaitility.await().atMost(Duration.ofSeconds(5)).pollInterval(Duration.ofMillis(100))
+                .until(() -> repository.getAll(SECOND).size() >= 2);
+        } finally {
+            scheduler.stop();
+        }
+        assertTrue(failed.get());
+    }
+
+    @Test
+    public void testSchedulingContinuesAfterFailure() {
+        MockResolutionRepository repository = new MockResolutionRepository();
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+
+        // a resolution that fails when its first closed period is gathered; the first
+        // call being made when that period is scheduled
+        AtomicInteger calls = new AtomicInteger();
+        Resolution failing = new Resolution() {
+            @Override
+            public String name() {
+                return "FAILING";
+            }
+
+            @Override
+            public Optional<Resolution> getLower() {
+                return Optional.empty();
+            }
+
+            @Override
+            public Instant roundDown(Instant aInstant) {
+                if (calls.incrementAndGet() == 2) {
+                    throw new IllegalStateException("Resolution unavailable");
+                }
+                return SECOND.roundDown(aInstant);
+            }
+
+            @Override
+            public Instant roundUp(Instant aInstant) {
+                return SECOND.roundUp(aInstant);
+            }
+
+            @Override
+            public Instant next(Instant aInstant) {
+                return roundDown(aInstant).plusSeconds(1);
+            }
+        };
+
+        MaterializationScheduler<MockDateRangedData> scheduler =
+            new MaterializationScheduler<>(loader, List.of(failing), Duration.ofMillis(50), 2);
+        scheduler.start();
+        try {
+            Awaitility.await().atMost(Duration.ofSeconds(5)).pollInterval(Duration.ofMillis(100))
+                .until(() -> repository.getAll(failing).size() >= 2);
+        } finally {
+            scheduler.stop();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.hillayes.accumulator.mocks;
 
 import com.hillayes.accumulator.Accumulation;
+import com.hillayes.accumulator.DateRange;
+import com.hillayes.accumulator.EmptyRanges;
 import com.hillayes.accumulator.Resolution;
 import com.hillayes.accumulator.ResolutionRepository;
 import lombok.extern.slf4j.Slf4j;
@@ -15,11 +17,12 @@ public class MockResolutionRepository implements ResolutionRepository<MockDateRa
     private static final Random RANDOM = new Random(100);
     private static final List<MockDateRangedData> EMPTY_RANGE = Collections.emptyList();
 
-    private final Map<Resolution, List<MockDateRangedData>> repository = new HashMap<>();
+    private final Map<String, Map<Resolution, List<MockDateRangedData>>> repository = new HashMap<>();
     private final AtomicInteger pendingBatchCount = new AtomicInteger();
+    private final EmptyRanges emptyRanges = new EmptyRanges();
 
     @Override
-    public List<MockDateRangedData> fetch(Instant aStartDate, Instant aEndDate) {
+    public List<MockDateRangedData> fetch(String aSeries, Instant aStartDate, Instant aEndDate) {
         log.debug("Fetching data from repository [start: {}, end: {}]", aStartDate, aEndDate);
         List<MockDateRangedData> result = new ArrayList<>();
         while (aStartDate.isBefore(aEndDate)) {
@@ -36,23 +39,40 @@ public class MockResolutionRepository implements ResolutionRepository<MockDateRa
     }
 
     public List<MockDateRangedData> getAll(Resolution aResolution) {
-        return repository.getOrDefault(aResolution, EMPTY_RANGE);
+        return getAll(DEFAULT_SERIES, aResolution);
+    }
+
+    public synchronized List<MockDateRangedData> getAll(String aSeries, Resolution aResolution) {
+        return repository.getOrDefault(aSeries, Map.of()).getOrDefault(aResolution, EMPTY_RANGE);
     }
 
     @Override
-    public List<MockDateRangedData> get(Resolution aResolution, Instant aStartDate, Instant aEndDate) {
-        return getAll(aResolution).stream()
-            .filter(data -> aStartDate.compareTo(data.getStartDate()) >= 0)
-            .filter(data -> aEndDate.compareTo(data.getEndDate()) < 0)
+    public synchronized List<MockDateRangedData> get(String aSeries, Resolution aResolution, Instant aStartDate, Instant aEndDate) {
+        return getAll(aSeries, aResolution).stream()
+            .filter(data -> aStartDate.compareTo(data.getStartDate()) <= 0)
+            .filter(data -> aEndDate.compareTo(data.getEndDate()) >= 0)
+            .sorted()
             .collect(Collectors.toList());
     }
 
     @Override
-    public void saveBatch(Spliterator<MockDateRangedData> aBatch) {
+    public List<DateRange> getEmpty(String aSeries, Resolution aResolution, Instant aStartDate, Instant aEndDate) {
+        return emptyRanges.get(aSeries, aResolution, aStartDate, aEndDate);
+    }
+
+    @Override
+    public boolean saveEmpty(String aSeries, Resolution aResolution, List<DateRange> aRanges) {
+        emptyRanges.add(aSeries, aResolution, aRanges);
+        return true;
+    }
+
+    @Override
+    public synchronized void saveBatch(String aSeries, Spliterator<MockDateRangedData> aBatch) {
         pendingBatchCount.incrementAndGet();
         try {
             aBatch.forEachRemaining(element ->
-                repository.computeIfAbsent(element.getResolution(), k -> new ArrayList<>())
+                repository.computeIfAbsent(aSeries, k -> new HashMap<>())
+                    .computeIfAbsent(element.getResolution(), k -> new ArrayList<>())
                     .add(element)
             );
         } finally {
@@ -1,15 +1,38 @@
 package com.hillayes.accumulator.mocks;
 
+import com.hillayes.accumulator.DateRange;
+import com.hillayes.accumulator.LoadSnapshot;
+import com.hillayes.accumulator.LoaderConfig;
 import com.hillayes.accumulator.Resolution;
 import com.hillayes.accumulator.ResolutionLoader;
+import com.hillayes.accumulator.ResolutionRepository;
+import com.hillayes.accumulator.resolutions.CalendarResolution;
 import com.hillayes.accumulator.resolutions.DefaultResolution;
+import org.awaitility.Awaitility;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ResolutionLoaderTest {
     @Test
@@ -42,4 +65,559 @@ public class ResolutionLoaderTest {
             resolution = resolution.getLower().orElse(null);
         }
     }
+
+    @Test
+    public void testPartialCache() {
+        // a repository that records the ranges fetched from the warehouse
+        List<Instant> fetched = new ArrayList<>();
+        MockResolutionRepository repository = new MockResolutionRepository() {
+            @Override
+            public List<MockDateRangedData> fetch(String aSeries, Instant aStartDate, Instant aEndDate) {
+                List<MockDateRangedData> result = super.fetch(aSeries, aStartDate, aEndDate);
+                result.forEach(data -> fetched.add(data.getStartDate()));
+                return result;
+            }
+        };
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository,
+            LoaderConfig.builder().partialCacheSize(10).build());
+
+        Instant start = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant trailer = start.plus(1, ChronoUnit.HOURS);
+
+        // the first load accumulates the whole trailing, partial hour
+        loader.load(DefaultResolution.HOUR, start, trailer.plus(30, ChronoUnit.MINUTES));
+        assertEquals(30, fetched.stream().filter(date -> !date.isBefore(trailer)).count());
+
+        // a later load extends the cached trailer with only the minutes that follow it
+        fetched.clear();
+        List<MockDateRangedData> data = loader.load(DefaultResolution.HOUR, start, trailer.plus(40, ChronoUnit.MINUTES));
+        assertEquals(10, fetched.stream().filter(date -> !date.isBefore(trailer)).count());
+
+        assertEquals(2, data.size());
+        assertEquals(trailer, data.get(1).getStartDate());
+        assertEquals(trailer.plus(40, ChronoUnit.MINUTES), data.get(1).getEndDate());
+    }
+
+    @Test
+    public void testPartialCacheWithUnalignedEnd() {
+        // a repository that records the values fetched from the warehouse
+        Map<Instant, Long> fetched = new HashMap<>();
+        MockResolutionRepository repository = new MockResolutionRepository() {
+            @Override
+            public List<MockDateRangedData> fetch(String aSeries, Instant aStartDate, Instant aEndDate) {
+                List<MockDateRangedData> result = super.fetch(aSeries, aStartDate, aEndDate);
+                result.forEach(data -> fetched.put(data.getStartDate(), data.getValue()));
+                return result;
+            }
+        };
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository,
+            LoaderConfig.builder().partialCacheSize(10).build());
+
+        Instant start = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant trailer = start.plus(1, ChronoUnit.HOURS);
+
+        // the first load ends part way through a minute
+        loader.load(DefaultResolution.HOUR, start, trailer.plus(30, ChronoUnit.MINUTES).plusSeconds(17));
+
+        // the extended trailer includes the minute in which the first load ended
+        List<MockDateRangedData> data = loader.load(DefaultResolution.HOUR, start, trailer.plus(40, ChronoUnit.MINUTES));
+        List<Instant> minutes = fetched.keySet().stream().filter(date -> !date.isBefore(trailer)).sorted().toList();
+        assertEquals(40, minutes.size());
+        assertEquals(minutes.stream().mapToLong(fetched::get).sum(), data.get(1).getValue());
+    }
+
+    @Test
+    public void testPartialCacheExtendsFromItsSource() {
+        MockResolutionRepository repository = new MockResolutionRepository();
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository,
+            LoaderConfig.builder().partialCacheSize(10).build());
+
+        Instant start = CalendarResolution.MONTH.roundDown(
+            CalendarResolution.MONTH.roundDown(Instant.now()).minusSeconds(1));
+        Instant today = start.plus(10, ChronoUnit.DAYS);
+        Instant trailer = today.plus(5, ChronoUnit.HOURS).plus(30, ChronoUnit.MINUTES);
+
+        // materialize the default days, from which the month is accumulated
+        loader.load(DefaultResolution.DAY, start, today.plus(1, ChronoUnit.DAYS));
+
+        // the partial month ends part way through a day
+        List<MockDateRangedData> data = loader.load(CalendarResolution.MONTH, start, trailer);
+        assertEquals(1, data.size());
+
+        // the extended partial includes each minute of the day only once
+        Instant end = trailer.plus(40, ChronoUnit.MINUTES);
+        data = loader.load(CalendarResolution.MONTH, start, end);
+        long expected = Stream.concat(
+                loader.load(DefaultResolution.DAY, start, today).stream(),
+                loader.load(DefaultResolution.MINUTE, today, end).stream())
+            .mapToLong(MockDateRangedData::getValue)
+            .sum();
+        assertEquals(1, data.size());
+        assertEquals(end, data.get(0).getEndDate());
+        assertEquals(expected, data.get(0).getValue());
+    }
+
+    @Test
+    public void testEmptyRangesAreNotRefetched() {
+        // a repository whose warehouse has no data
+        AtomicInteger fetchCount = new AtomicInteger();
+        MockResolutionRepository repository = new MockResolutionRepository() {
+            @Override
+            public List<MockDateRangedData> fetch(String aSeries, Instant aStartDate, Instant aEndDate) {
+                fetchCount.incrementAndGet();
+                return List.of();
+            }
+        };
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant start = end.minus(2, ChronoUnit.DAYS);
+
+        List<MockDateRangedData> data = loader.load(DefaultResolution.DAY, start, end);
+        assertEquals(2, data.size());
+        data.forEach(element -> assertEquals(0, element.getValue()));
+        assertEquals(1, fetchCount.get());
+
+        // the empty periods are recorded as single ranges, rather than persisted
+        Resolution resolution = DefaultResolution.DAY;
+        while (resolution != null) {
+            assertTrue(repository.getAll(resolution).isEmpty());
+            assertEquals(List.of(new DateRange(start, end)), repository.getEmpty(ResolutionRepository.DEFAULT_SERIES, resolution, start, end));
+            resolution = resolution.getLower().orElse(null);
+        }
+
+        // a second request doesn't return to the warehouse
+        data = loader.load(DefaultResolution.DAY, start, end);
+        assertEquals(2, data.size());
+        assertEquals(1, fetchCount.get());
+    }
+
+    @Test
+    public void testSeriesAreStoredSeparately() {
+        MockResolutionRepository repository = new MockResolutionRepository();
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant start = end.minus(2, ChronoUnit.DAYS);
+
+        assertEquals(2, loader.load("series-a", DefaultResolution.DAY, start, end).size());
+        assertEquals(2, repository.getAll("series-a", DefaultResolution.DAY).size());
+        assertTrue(repository.getAll("series-b", DefaultResolution.DAY).isEmpty());
+        assertTrue(repository.getAll(DefaultResolution.DAY).isEmpty());
+
+        assertEquals(2, loader.load("series-b", DefaultResolution.DAY, start, end).size());
+        assertEquals(2, repository.getAll("series-b", DefaultResolution.DAY).size());
+        assertEquals(2, repository.getAll("series-a", DefaultResolution.DAY).size());
+    }
+
+    @Test
+    public void testMultiSeriesLoad() {
+        // a repository that counts the requests made of it
+        AtomicInteger fetchCount = new AtomicInteger();
+        AtomicInteger getCount = new AtomicInteger();
+        MockResolutionRepository repository = new MockResolutionRepository() {
+            @Override
+            public Map<String, List<MockDateRangedData>> fetch(Collection<String> aSeries,
+                                                               Instant aStartDate, Instant aEndDate) {
+                fetchCount.incrementAndGet();
+                return super.fetch(aSeries, aStartDate, aEndDate);
+            }
+
+            @Override
+            public Map<String, List<MockDateRangedData>> get(Collection<String> aSeries, Resolution aResolution,
+                                                             Instant aStartDate, Instant aEndDate) {
+                getCount.incrementAndGet();
+                return super.get(aSeries, aResolution, aStartDate, aEndDate);
+            }
+        };
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant start = end.minus(2, ChronoUnit.DAYS);
+
+        List<String> series = List.of("1", "2", "3", "4", "5");
+        Map<String, List<MockDateRangedData>> data = loader.load(series, DefaultResolution.DAY, start, end);
+
+        // each series has its own data
+        assertEquals(series.size(), data.size());
+        series.forEach(key -> {
+            assertEquals(2, data.get(key).size());
+            assertEquals(2, repository.getAll(key, DefaultResolution.DAY).size());
+        });
+
+        // one read per resolution, and one fetch from the warehouse, for all series
+        assertEquals(3, getCount.get());
+        assertEquals(1, fetchCount.get());
+    }
+
+    @Test
+    public void testExplain() {
+        // a repository that counts the requests made of it
+        AtomicInteger fetchCount = new AtomicInteger();
+        MockResolutionRepository repository = new MockResolutionRepository() {
+            @Override
+            public Map<String, List<MockDateRangedData>> fetch(Collection<String> aSeries,
+                                                               Instant aStartDate, Instant aEndDate) {
+                fetchCount.incrementAndGet();
+                return super.fetch(aSeries, aStartDate, aEndDate);
+            }
+        };
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+
+        // a range with partial leading and trailing days
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS).plus(6, ChronoUnit.HOURS);
+        Instant start = end.minus(3, ChronoUnit.DAYS);
+        List<String> series = List.of("1", "2", "3");
+
+        // the leader, gap and trailer touch - so are fetched in one request
+        String plan = loader.explain(series, DefaultResolution.DAY, start, end);
+        assertTrue(plan.startsWith("LOAD DAY"));
+        assertTrue(plan.contains("PARTIAL"));
+        assertTrue(plan.contains("GAP"));
+        assertEquals(1, plan.lines().filter(line -> line.trim().startsWith("FETCH")).count());
+
+        // explaining the plan fetches nothing
+        assertEquals(0, fetchCount.get());
+
+        loader.load(series, DefaultResolution.DAY, start, end);
+        assertEquals(1, fetchCount.get());
+
+        // once loaded, the whole hours are read from the local repository
+        plan = loader.explain(series, DefaultResolution.DAY, start, end);
+        assertTrue(plan.lines().noneMatch(line -> line.trim().startsWith("FETCH")));
+        assertTrue(plan.lines().noneMatch(line -> line.trim().startsWith("GAP")));
+    }
+
+    @Test
+    public void testGapsAreCoalesced() {
+        // a repository that counts the fetches from the warehouse
+        AtomicInteger fetchCount = new AtomicInteger();
+        MockResolutionRepository repository = new MockResolutionRepository() {
+            @Override
+            public List<MockDateRangedData> fetch(String aSeries, Instant aStartDate, Instant aEndDate) {
+                fetchCount.incrementAndGet();
+                return super.fetch(aSeries, aStartDate, aEndDate);
+            }
+        };
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository,
+            LoaderConfig.builder().requestCost(Duration.ofHours(2)).build());
+
+        // load every other hour of the day
+        Instant start = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(2, ChronoUnit.DAYS);
+        for (int hour = 0; hour < 24; hour += 2) {
+            Instant hourStart = start.plus(hour, ChronoUnit.HOURS);
+            loader.load(DefaultResolution.HOUR, hourStart, hourStart.plus(1, ChronoUnit.HOURS));
+        }
+        assertEquals(12, repository.getAll(DefaultResolution.HOUR).size());
+
+        // the twelve one-hour gaps are filled by a single fetch
+        fetchCount.set(0);
+        List<MockDateRangedData> data = loader.load(DefaultResolution.HOUR, start, start.plus(1, ChronoUnit.DAYS));
+        assertEquals(1, fetchCount.get());
+        assertEquals(24, data.size());
+
+        // the hours already covered are not persisted again
+        assertEquals(24, repository.getAll(DefaultResolution.HOUR).size());
+    }
+
+    @Test
+    public void testProgressiveLoad() throws Exception {
+        MockResolutionRepository repository = new MockResolutionRepository();
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+
+        // load the first and thirteenth hours of the day
+        Instant start = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(2, ChronoUnit.DAYS);
+        loader.load(DefaultResolution.HOUR, start, start.plus(1, ChronoUnit.HOURS));
+        loader.load(DefaultResolution.HOUR, start.plus(12, ChronoUnit.HOURS), start.plus(13, ChronoUnit.HOURS));
+
+        List<LoadSnapshot<MockDateRangedData>> snapshots = new CopyOnWriteArrayList<>();
+        Map<String, List<MockDateRangedData>> result = loader.loadProgressive(List.of(ResolutionRepository.DEFAULT_SERIES),
+            DefaultResolution.HOUR, start, start.plus(1, ChronoUnit.DAYS), snapshots::add).get();
+
+        // the first snapshot holds the hours already loaded, with the gaps pending
+        LoadSnapshot<MockDateRangedData> first = snapshots.get(0);
+        assertEquals(2, first.getData().get(ResolutionRepository.DEFAULT_SERIES).size());
+        assertEquals(List.of(
+            new DateRange(start.plus(1, ChronoUnit.HOURS), start.plus(12, ChronoUnit.HOURS)),
+            new DateRange(start.plus(13, ChronoUnit.HOURS), start.plus(1, ChronoUnit.DAYS))
+        ), first.getPending().get(ResolutionRepository.DEFAULT_SERIES));
+
+        // each gap filled refines the snapshot
+        assertEquals(3, snapshots.size());
+        assertEquals(13, snapshots.get(1).getData().get(ResolutionRepository.DEFAULT_SERIES).size());
+        assertEquals(1, snapshots.get(1).getPending().get(ResolutionRepository.DEFAULT_SERIES).size());
+
+        LoadSnapshot<MockDateRangedData> last = snapshots.get(2);
+        assertTrue(last.isComplete());
+        assertEquals(24, last.getData().get(ResolutionRepository.DEFAULT_SERIES).size());
+        assertEquals(result.get(ResolutionRepository.DEFAULT_SERIES).stream().map(MockDateRangedData::getStartDate).toList(),
+            last.getData().get(ResolutionRepository.DEFAULT_SERIES).stream().map(MockDateRangedData::getStartDate).toList());
+        assertEquals(24, repository.getAll(DefaultResolution.HOUR).size());
+    }
+
+    @Test
+    public void testProgressiveLoadPublishesBeforePlanning() throws Exception {
+        // a repository that records the resolutions read, and the threads reading them
+        Thread caller = Thread.currentThread();
+        AtomicBoolean readByCaller = new AtomicBoolean();
+        List<Resolution> reads = new CopyOnWriteArrayList<>();
+        MockResolutionRepository repository = new MockResolutionRepository() {
+            @Override
+            public synchronized List<MockDateRangedData> get(String aSeries, Resolution aResolution,
+                                                             Instant aStartDate, Instant aEndDate) {
+                readByCaller.compareAndSet(false, Thread.currentThread() == caller);
+                reads.add(aResolution);
+                return super.get(aSeries, aResolution, aStartDate, aEndDate);
+            }
+        };
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+
+        Instant start = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(2, ChronoUnit.DAYS);
+        List<List<Resolution>> readsAtSnapshot = new CopyOnWriteArrayList<>();
+        loader.loadProgressive(List.of(ResolutionRepository.DEFAULT_SERIES), DefaultResolution.HOUR,
+            start, start.plus(1, ChronoUnit.DAYS), snapshot -> readsAtSnapshot.add(List.copyOf(reads))).get();
+
+        // nothing is read on the caller's thread
+        assertFalse(readByCaller.get());
+
+        // the first snapshot is passed before the lower resolutions are read
+        assertEquals(List.of(DefaultResolution.HOUR), readsAtSnapshot.get(0));
+        assertTrue(reads.contains(DefaultResolution.MINUTE));
+    }
+
+    @Test
+    public void testLoadIsWindowed() {
+        // a repository that counts the fetches from the warehouse
+        AtomicInteger fetchCount = new AtomicInteger();
+        MockResolutionRepository repository = new MockResolutionRepository() {
+            @Override
+            public List<MockDateRangedData> fetch(String aSeries, Instant aStartDate, Instant aEndDate) {
+                fetchCount.incrementAndGet();
+                return super.fetch(aSeries, aStartDate, aEndDate);
+            }
+        };
+
+        // a window of one day's minutes
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository,
+            LoaderConfig.builder().windowSize(24 * 60).build());
+
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant start = end.minus(3, ChronoUnit.DAYS);
+
+        // each day is loaded, and passed, in its own window
+        List<Integer> windows = new ArrayList<>();
+        loader.loadWindowed(List.of(ResolutionRepository.DEFAULT_SERIES), DefaultResolution.HOUR, start, end,
+            data -> windows.add(data.get(ResolutionRepository.DEFAULT_SERIES).size()));
+        assertEquals(List.of(24, 24, 24), windows);
+        assertEquals(3, fetchCount.get());
+
+        // a load collects the windows
+        List<MockDateRangedData> data = loader.load(DefaultResolution.HOUR, start.minus(2, ChronoUnit.DAYS), end);
+        assertEquals(5 * 24, data.size());
+        assertEquals(5, fetchCount.get());
+        for (int i = 1; i < data.size(); i++) {
+            assertEquals(data.get(i - 1).getEndDate(), data.get(i).getStartDate());
+        }
+    }
+
+    @Test
+    public void testCheapestSourceIsChosen() {
+        // a repository that counts the fetches from the warehouse
+        AtomicInteger fetchCount = new AtomicInteger();
+        MockResolutionRepository repository = new MockResolutionRepository() {
+            @Override
+            public List<MockDateRangedData> fetch(String aSeries, Instant aStartDate, Instant aEndDate) {
+                fetchCount.incrementAndGet();
+                return super.fetch(aSeries, aStartDate, aEndDate);
+            }
+        };
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+
+        Instant end = CalendarResolution.MONTH.roundDown(Instant.now());
+        Instant start = CalendarResolution.MONTH.roundDown(end.minusSeconds(1));
+
+        // materialize the days of the default resolutions
+        long total = loader.load(DefaultResolution.DAY, start, end).stream()
+            .mapToLong(MockDateRangedData::getValue)
+            .sum();
+
+        // the month is accumulated from those days, rather than the warehouse
+        fetchCount.set(0);
+        List<MockDateRangedData> data = loader.load(CalendarResolution.MONTH, start, end);
+        assertEquals(0, fetchCount.get());
+        assertEquals(1, data.size());
+        assertEquals(total, data.get(0).getValue());
+        assertTrue(repository.getAll(CalendarResolution.DAY).isEmpty());
+    }
+
+    @Test
+    public void testSelectResolution() {
+        MockResolutionRepository repository = new MockResolutionRepository();
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant start = end.minus(3, ChronoUnit.DAYS);
+        List<Resolution> resolutions = List.of(DefaultResolution.MINUTE, DefaultResolution.HOUR, DefaultResolution.DAY);
+
+        // the finest resolution within the budget
+        assertEquals(DefaultResolution.HOUR, loader.selectResolution(ResolutionRepository.DEFAULT_SERIES,
+            resolutions, 100, start, end));
+        assertEquals(DefaultResolution.DAY, loader.selectResolution(ResolutionRepository.DEFAULT_SERIES,
+            resolutions, 1, start, end));
+
+        // a resolution already materialized is preferred
+        List<MockDateRangedData> days = new ArrayList<>();
+        for (Instant day = start; day.isBefore(end); day = DefaultResolution.DAY.next(day)) {
+            days.add(repository.newAccumulation(DefaultResolution.DAY, day, DefaultResolution.DAY.next(day)).complete());
+        }
+        repository.save(ResolutionRepository.DEFAULT_SERIES, days);
+        assertEquals(DefaultResolution.DAY, loader.selectResolution(ResolutionRepository.DEFAULT_SERIES,
+            resolutions, 100, start, end));
+
+        assertEquals(3, loader.load(ResolutionRepository.DEFAULT_SERIES, resolutions, 100, start, end).size());
+    }
+
+    @Test
+    public void testSelectedResolutionIsPlannedOnce() {
+        // a repository that counts the reads of each resolution
+        Map<Resolution, AtomicInteger> reads = new ConcurrentHashMap<>();
+        MockResolutionRepository repository = new MockResolutionRepository() {
+            @Override
+            public synchronized List<MockDateRangedData> get(String aSeries, Resolution aResolution,
+                                                             Instant aStartDate, Instant aEndDate) {
+                reads.computeIfAbsent(aResolution, k -> new AtomicInteger()).incrementAndGet();
+                return super.get(aSeries, aResolution, aStartDate, aEndDate);
+            }
+        };
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant start = end.minus(3, ChronoUnit.DAYS);
+        List<Resolution> resolutions = List.of(DefaultResolution.MINUTE, DefaultResolution.HOUR, DefaultResolution.DAY);
+
+        List<MockDateRangedData> days = new ArrayList<>();
+        for (Instant day = start; day.isBefore(end); day = DefaultResolution.DAY.next(day)) {
+            days.add(repository.newAccumulation(DefaultResolution.DAY, day, DefaultResolution.DAY.next(day)).complete());
+        }
+        repository.save(ResolutionRepository.DEFAULT_SERIES, days);
+
+        // the plan by which the materialized days were chosen is the one executed
+        assertEquals(3, loader.load(ResolutionRepository.DEFAULT_SERIES, resolutions, 100, start, end).size());
+        assertEquals(1, reads.get(DefaultResolution.DAY).get());
+    }
+
+    @Test
+    public void testAsyncLoadIsInterruptedAtDeadline() {
+        // a repository whose warehouse never responds
+        AtomicBoolean interrupted = new AtomicBoolean();
+        MockResolutionRepository repository = new MockResolutionRepository() {
+            @Override
+            public List<MockDateRangedData> fetch(String aSeries, Instant aStartDate, Instant aEndDate) {
+                try {
+                    Thread.sleep(Duration.ofMinutes(1));
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                    Thread.currentThread().interrupt();
+                }
+                return super.fetch(aSeries, aStartDate, aEndDate);
+            }
+        };
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant start = end.minus(1, ChronoUnit.DAYS);
+
+        CompletableFuture<List<MockDateRangedData>> future = loader.loadAsync(ResolutionRepository.DEFAULT_SERIES,
+            DefaultResolution.DAY, start, end, Instant.now().plusMillis(200));
+
+        ExecutionException error = assertThrows(ExecutionException.class, future::get);
+        assertTrue(error.getCause() instanceof TimeoutException);
+
+        // the fetch is interrupted, and nothing is persisted
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(interrupted::get);
+        assertTrue(repository.getAll(DefaultResolution.DAY).isEmpty());
+    }
+
+    @Test
+    public void testCloseAbandonsAsyncLoads() {
+        // a repository whose warehouse never responds
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicBoolean slow = new AtomicBoolean(true);
+        MockResolutionRepository repository = new MockResolutionRepository() {
+            @Override
+            public List<MockDateRangedData> fetch(String aSeries, Instant aStartDate, Instant aEndDate) {
+                if (slow.get()) {
+                    try {
+                        Thread.sleep(Duration.ofMinutes(1));
+                    } catch (InterruptedException e) {
+                        interrupted.set(true);
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.fetch(aSeries, aStartDate, aEndDate);
+            }
+        };
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository,
+            LoaderConfig.builder().readAheadThreads(1).build());
+
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant start = end.minus(1, ChronoUnit.DAYS);
+
+        CompletableFuture<List<MockDateRangedData>> future = loader.loadAsync(ResolutionRepository.DEFAULT_SERIES,
+            DefaultResolution.DAY, start, end, Instant.now().plusSeconds(30));
+        loader.close();
+
+        // the load in progress is interrupted
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(interrupted::get);
+        assertThrows(ExecutionException.class, future::get);
+
+        // no further async loads are accepted
+        future = loader.loadAsync(ResolutionRepository.DEFAULT_SERIES,
+            DefaultResolution.DAY, start, end, Instant.now().plusSeconds(30));
+        ExecutionException error = assertThrows(ExecutionException.class, future::get);
+        assertTrue(error.getCause() instanceof RejectedExecutionException);
+
+        // but synchronous loads continue, without read-ahead
+        slow.set(false);
+        assertEquals(1, loader.load(DefaultResolution.DAY, start, end).size());
+    }
+
+    @Test
+    public void testAsyncLoad() throws Exception {
+        MockResolutionRepository repository = new MockResolutionRepository();
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant start = end.minus(2, ChronoUnit.DAYS);
+
+        List<MockDateRangedData> data = loader.loadAsync(ResolutionRepository.DEFAULT_SERIES,
+            DefaultResolution.DAY, start, end, Instant.now().plusSeconds(30)).get();
+        assertEquals(2, data.size());
+    }
+
+    @Test
+    public void testRollup() {
+        MockResolutionRepository repository = new MockResolutionRepository();
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant start = end.minus(2, ChronoUnit.DAYS);
+
+        List<String> members = List.of("1", "2", "3");
+        List<MockDateRangedData> data = loader.loadRollup("all", members, DefaultResolution.DAY, start, end);
+        assertEquals(2, data.size());
+
+        // the rollup is persisted under the group key
+        assertEquals(data, repository.getAll("all", DefaultResolution.DAY));
+
+        // each rollup element is the total of the members' elements of the same period
+        data.forEach(rollup -> {
+            long total = members.stream()
+                .flatMap(member -> repository.getAll(member, DefaultResolution.DAY).stream())
+                .filter(element -> element.getStartDate().equals(rollup.getStartDate()))
+                .mapToLong(MockDateRangedData::getValue)
+                .sum();
+            assertEquals(total, rollup.getValue());
+        });
+    }
 }
@@ -0,0 +1,142 @@
+package com.hillayes.accumulator.mocks;
+
+import com.hillayes.accumulator.ResolutionLoader;
+import com.hillayes.accumulator.RunningAggregates;
+import com.hillayes.accumulator.resolutions.DefaultResolution;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RunningAggregatesTest {
+    @Test
+    public void testIngestion() {
+        MockResolutionRepository repository = new MockResolutionRepository();
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+        RunningAggregates<MockDateRangedData> aggregates = loader.startIngestion(DefaultResolution.HOUR);
+
+        // ingest 90 minutes of data, each minute with the value 1
+        Instant start = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant end = start.plus(90, ChronoUnit.MINUTES);
+        for (Instant minute = start; minute.isBefore(end); minute = minute.plus(1, ChronoUnit.MINUTES)) {
+            aggregates.ingest(MockDateRangedData.builder()
+                .resolution(DefaultResolution.MINUTE)
+                .startDate(minute)
+                .endDate(minute.plus(1, ChronoUnit.MINUTES))
+                .value(1)
+                .build());
+        }
+
+        // the first hour, and the minutes, have closed but are not persisted
+        assertTrue(repository.getAll(DefaultResolution.HOUR).isEmpty());
+        assertTrue(repository.getAll(DefaultResolution.MINUTE).isEmpty());
+
+        // a late record is ignored
+        aggregates.ingest(MockDateRangedData.builder()
+            .resolution(DefaultResolution.MINUTE)
+            .startDate(start.plus(70, ChronoUnit.MINUTES))
+            .endDate(start.plus(71, ChronoUnit.MINUTES))
+            .value(1)
+            .build());
+
+        // the trailing, partial hour is taken from the running aggregate
+        List<MockDateRangedData> data = loader.load(DefaultResolution.HOUR, start, end);
+        assertEquals(2, data.size());
+        MockDateRangedData trailer = data.get(1);
+        assertEquals(start.plus(1, ChronoUnit.HOURS), trailer.getStartDate());
+        assertEquals(end, trailer.getEndDate());
+        assertEquals(30, trailer.getValue());
+    }
+
+    @Test
+    public void testClosedPeriodIsLeftToTheLoader() {
+        MockResolutionRepository repository = new MockResolutionRepository();
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+        RunningAggregates<MockDateRangedData> aggregates = loader.startIngestion(DefaultResolution.HOUR);
+
+        // ingest 90 minutes of data, of which one minute never arrives
+        Instant start = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant end = start.plus(90, ChronoUnit.MINUTES);
+        Instant lost = start.plus(10, ChronoUnit.MINUTES);
+        for (Instant minute = start; minute.isBefore(end); minute = minute.plus(1, ChronoUnit.MINUTES)) {
+            if (!minute.equals(lost)) {
+                aggregates.ingest(minute(minute));
+            }
+        }
+
+        // the closed hour is accumulated from the whole of its lower-resolution data
+        List<MockDateRangedData> hours = loader.load(DefaultResolution.HOUR, start, start.plus(1, ChronoUnit.HOURS));
+        List<MockDateRangedData> minutes = loader.load(DefaultResolution.MINUTE, start, start.plus(1, ChronoUnit.HOURS));
+        assertEquals(1, hours.size());
+        assertEquals(60, minutes.size());
+        assertEquals(minutes.stream().mapToLong(MockDateRangedData::getValue).sum(), hours.get(0).getValue());
+    }
+
+    @Test
+    public void testLaggingAggregateIsNotUsed() {
+        MockResolutionRepository repository = new MockResolutionRepository();
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+        RunningAggregates<MockDateRangedData> aggregates = loader.startIngestion(DefaultResolution.HOUR);
+
+        // ingest 90 minutes of data
+        Instant start = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant end = start.plus(90, ChronoUnit.MINUTES);
+        for (Instant minute = start; minute.isBefore(end); minute = minute.plus(1, ChronoUnit.MINUTES)) {
+            aggregates.ingest(minute(minute));
+        }
+
+        // a load beyond the ingested data accumulates its trailer from the lower resolution
+        List<MockDateRangedData> data = loader.load(DefaultResolution.HOUR, start, end.plus(10, ChronoUnit.MINUTES));
+        assertEquals(2, data.size());
+        assertEquals(end.plus(10, ChronoUnit.MINUTES), data.get(1).getEndDate());
+    }
+
+    @Test
+    public void testSeedingDoesNotBlockIngestion() throws Exception {
+        // a repository whose warehouse doesn't respond until released
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MockResolutionRepository repository = new MockResolutionRepository() {
+            @Override
+            public List<MockDateRangedData> fetch(String aSeries, Instant aStartDate, Instant aEndDate) {
+                fetching.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.fetch(aSeries, aStartDate, aEndDate);
+            }
+        };
+        ResolutionLoader<MockDateRangedData> loader = new ResolutionLoader<>(repository);
+        RunningAggregates<MockDateRangedData> aggregates = loader.startIngestion(DefaultResolution.HOUR);
+
+        // a record part way through the hour, whose running aggregate must be seeded
+        Instant start = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        CompletableFuture<Void> seeding = CompletableFuture.runAsync(() ->
+            aggregates.ingest(minute(start.plus(30, ChronoUnit.MINUTES))));
+        assertTrue(fetching.await(5, TimeUnit.SECONDS));
+
+        // the records of other series are ingested whilst the seed is fetched
+        CompletableFuture.runAsync(() -> aggregates.ingest("other", minute(start))).get(5, TimeUnit.SECONDS);
+
+        release.countDown();
+        seeding.get(5, TimeUnit.SECONDS);
+    }
+
+    private MockDateRangedData minute(Instant aStartDate) {
+        return MockDateRangedData.builder()
+            .resolution(DefaultResolution.MINUTE)
+            .startDate(aStartDate)
+            .endDate(aStartDate.plus(1, ChronoUnit.MINUTES))
+            .value(1)
+            .build();
+    }
+}
@@ -13,7 +13,9 @@ import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Spliterator;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -28,19 +30,26 @@ public class JdbcDatabase implements ConcurrentResolutionRepository.ThreadedData
     private static final String GET_STATEMENT =
         "SELECT resolution, start_date, end_date, units, blocks " +
             "FROM test.accumulation " +
-            "WHERE resolution = ? AND ? <= end_date AND ? >= start_date " +
+            "WHERE series = ? AND resolution = ? AND ? <= end_date AND ? >= start_date " +
             "ORDER BY resolution, start_date ASC;";
 
+    private static final String GET_ALL_STATEMENT =
+        "SELECT series, start_date, end_date, units, blocks " +
+            "FROM test.accumulation " +
+            "WHERE series = ANY(?) AND resolution = ? AND ? <= end_date AND ? >= start_date " +
+            "ORDER BY series, start_date ASC;";
+
     @Override
-    public List<LocalData> get(Resolution aResolution, Instant aStartDate, Instant aEndDate) {
-        log.debug("Looking for data [resolution: {}, startDate: {}, endDate: {}]",
-            aResolution, aStartDate, aEndDate);
+    public List<LocalData> get(String aSeries, Resolution aResolution, Instant aStartDate, Instant aEndDate) {
+        log.debug("Looking for data [series: {}, resolution: {}, startDate: {}, endDate: {}]",
+            aSeries, aResolution, aStartDate, aEndDate);
         ArrayList<LocalData> entries = new ArrayList<>();
         ConnectionSource.withConnection(con -> {
             try (PreparedStatement statement = con.prepareStatement(GET_STATEMENT)) {
-                statement.setString(1, aResolution.name());
-                statement.setTimestamp(2, Timestamp.from(aStartDate));
-                statement.setTimestamp(3, Timestamp.from(aEndDate));
+                statement.setString(1, aSeries);
+                statement.setString(2, aResolution.name());
+                statement.setTimestamp(3, Timestamp.from(aStartDate));
+                statement.setTimestamp(4, Timestamp.from(aEndDate));
 
                 try (ResultSet resultSet = statement.executeQuery()) {
                     while (resultSet.next()) {
@@ -61,32 +70,64 @@ public class JdbcDatabase implements ConcurrentResolutionRepository.ThreadedData
     }
 
     @Override
-    public void saveBatch(Spliterator<LocalData> aBatch) {
+    public Map<String, List<LocalData>> get(Collection<String> aSeries, Resolution aResolution,
+                                            Instant aStartDate, Instant aEndDate) {
+        log.debug("Looking for data [series: {}, resolution: {}, startDate: {}, endDate: {}]",
+            aSeries.size(), aResolution, aStartDate, aEndDate);
+        Map<String, List<LocalData>> entries = new HashMap<>();
+        ConnectionSource.withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(GET_ALL_STATEMENT)) {
+                statement.setArray(1, con.createArrayOf("varchar", aSeries.toArray()));
+                statement.setString(2, aResolution.name());
+                statement.setTimestamp(3, Timestamp.from(aStartDate));
+                statement.setTimestamp(4, Timestamp.from(aEndDate));
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        entries.computeIfAbsent(resultSet.getString(1), k -> new ArrayList<>())
+                            .add(LocalData.builder()
+                                .resolution(aResolution)
+                                .startDate(resultSet.getTimestamp(2).toInstant())
+                                .endDate(resultSet.getTimestamp(3).toInstant())
+                                .units(resultSet.getLong(4))
+                                .blocks(resultSet.getLong(5))
+                                .build());
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        return entries;
+    }
+
+    @Override
+    public void saveBatch(String aSeries, Spliterator<LocalData> aBatch) {
         ArrayList<LocalData> dataList = new ArrayList<>();
         aBatch.forEachRemaining(dataList::add);
 
-        saveBatch(dataList);
+        saveBatch(aSeries, dataList);
     }
 
-    public void saveBatch(Collection<LocalData> aBatch) {
+    public void saveBatch(String aSeries, Collection<LocalData> aBatch) {
         try {
-            saveAll(aBatch);
+            saveAll(aSeries, aBatch);
         } catch (Exception e) {
             log.warn("Failed to save batch [size: {}]", aBatch.size());
             throw new BatchInsertException(aBatch, e);
         }
     }
 
-    private void saveAll(Collection<LocalData> aBatch) {
+    private void saveAll(String aSeries, Collection<LocalData> aBatch) {
         if ((aBatch == null) || (aBatch.isEmpty())) {
             log.debug("Skipping empty batch");
             return;
         }
-        log.debug("Saving batch [size: {}, resolution: {}]",
-            aBatch.size(), aBatch.stream().findFirst().get().getResolution());
+        log.debug("Saving batch [size: {}, series: {}, resolution: {}]",
+            aBatch.size(), aSeries, aBatch.stream().findFirst().get().getResolution());
 
         // construct insert statement with placeholders for each row
-        String sql = "INSERT INTO test.accumulation (resolution, start_date, end_date, units, blocks) VALUES " +
+        String sql = "INSERT INTO test.accumulation (series, resolution, start_date, end_date, units, blocks) VALUES " +
             createRowPlaceholders(aBatch.size()) +
             " ON CONFLICT DO NOTHING;";
 
@@ -98,12 +139,13 @@ public class JdbcDatabase implements ConcurrentResolutionRepository.ThreadedData
                     // add each row to the statement
                     AtomicInteger index = new AtomicInteger(0);
                     for (LocalData row : aBatch) {
-                        int offset = index.get() * 5;
-                        statement.setString(offset + 1, row.getResolution().name());
-                        statement.setTimestamp(offset + 2, Timestamp.from(row.getStartDate()));
-                        statement.setTimestamp(offset + 3, Timestamp.from(row.getEndDate()));
-                        statement.setLong(offset + 4, row.getUnits());
-                        statement.setLong(offset + 5, row.getBlocks());
+                        int offset = index.get() * 6;
+                        statement.setString(offset + 1, aSeries);
+                        statement.setString(offset + 2, row.getResolution().name());
+                        statement.setTimestamp(offset + 3, Timestamp.from(row.getStartDate()));
+                        statement.setTimestamp(offset + 4, Timestamp.from(row.getEndDate()));
+                        statement.setLong(offset + 5, row.getUnits());
+                        statement.setLong(offset + 6, row.getBlocks());
 
                         index.incrementAndGet();
                     }
@@ -122,7 +164,7 @@ public class JdbcDatabase implements ConcurrentResolutionRepository.ThreadedData
         StringBuilder result = new StringBuilder();
         for (int i = 0; i < count; i++) {
             if (i > 0) { result.append(','); }
-            result.append("(?,?,?,?,?)");
+            result.append("(?,?,?,?,?,?)");
         }
         return result.toString();
     }
@@ -27,13 +27,14 @@ public class JdbcRepositoryTest {
     private static final String SCHEMA_SQL = """
         CREATE SCHEMA IF NOT EXISTS test;
         CREATE TABLE test.accumulation (
+            series varchar(256) NOT NULL,
             resolution varchar(256) NOT NULL,
             start_date timestamp NOT NULL,
             end_date timestamp NOT NULL,
             units bigint NOT NULL DEFAULT 0,
             blocks bigint NOT NULL DEFAULT 0
         );
-        CREATE INDEX idx_resolution_date ON test.accumulation (resolution, start_date);
+        CREATE INDEX idx_series_resolution_date ON test.accumulation (series, resolution, start_date);
     """.stripIndent();
 
     @BeforeAll
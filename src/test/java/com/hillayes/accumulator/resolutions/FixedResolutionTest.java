@@ -0,0 +1,73 @@
+package com.hillayes.accumulator.resolutions;
+
+import com.hillayes.accumulator.Resolution;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FixedResolutionTest {
+    @Test
+    public void testFifteenMinutes_roundDown() {
+        Instant instant = Instant.parse("2022-09-26T10:29:20.5Z");
+        Instant roundDown = FixedResolution.FIFTEEN_MINUTES.roundDown(instant);
+
+        assertEquals(Instant.parse("2022-09-26T10:15:00Z"), roundDown);
+        assertEquals(roundDown, FixedResolution.FIFTEEN_MINUTES.roundDown(roundDown));
+    }
+
+    @Test
+    public void testFifteenMinutes_roundUp() {
+        Instant instant = Instant.parse("2022-09-26T10:29:20Z");
+        Instant roundUp = FixedResolution.FIFTEEN_MINUTES.roundUp(instant);
+
+        assertEquals(Instant.parse("2022-09-26T10:30:00Z"), roundUp);
+        assertEquals(roundUp, FixedResolution.FIFTEEN_MINUTES.roundUp(roundUp));
+
+        // a fraction of a second past the boundary rounds up to the next
+        assertEquals(Instant.parse("2022-09-26T10:45:00Z"),
+            FixedResolution.FIFTEEN_MINUTES.roundUp(Instant.parse("2022-09-26T10:30:00.001Z")));
+    }
+
+    @Test
+    public void testSixHours_next() {
+        Instant instant = Instant.parse("2022-09-26T13:58:20Z");
+
+        Instant next = FixedResolution.SIX_HOURS.next(instant);
+        assertEquals(Instant.parse("2022-09-26T18:00:00Z"), next);
+
+        next = FixedResolution.SIX_HOURS.next(next);
+        assertEquals(Instant.parse("2022-09-27T00:00:00Z"), next);
+    }
+
+    @Test
+    public void testOffset() {
+        // six-hour periods starting at 03:00
+        Resolution resolution = new FixedResolution("SHIFT", Duration.ofHours(6), Duration.ofHours(3),
+            List.of(DefaultResolution.HOUR));
+
+        assertEquals(Instant.parse("2022-09-26T21:00:00Z"),
+            resolution.roundDown(Instant.parse("2022-09-27T02:59:59Z")));
+        assertEquals(Instant.parse("2022-09-27T03:00:00Z"),
+            resolution.next(Instant.parse("2022-09-26T21:00:00Z")));
+    }
+
+    @Test
+    public void testBeforeEpoch() {
+        assertEquals(Instant.parse("1969-12-31T23:45:00Z"),
+            FixedResolution.FIFTEEN_MINUTES.roundDown(Instant.parse("1969-12-31T23:59:59Z")));
+    }
+
+    @Test
+    public void testSourceMustDivideEvenly() {
+        assertThrows(IllegalArgumentException.class, () ->
+            new FixedResolution("SEVEN_MINUTES", Duration.ofMinutes(7), FixedResolution.FIVE_MINUTES));
+        assertThrows(IllegalArgumentException.class, () ->
+            new FixedResolution("HALF_HOUR_OFFSET", Duration.ofHours(1), Duration.ofMinutes(30),
+                List.of(DefaultResolution.HOUR)));
+    }
+}
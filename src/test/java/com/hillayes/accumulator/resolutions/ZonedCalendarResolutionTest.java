@@ -0,0 +1,87 @@
+package com.hillayes.accumulator.resolutions;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ZonedCalendarResolutionTest {
+    private static final ZoneId LONDON = ZoneId.of("Europe/London");
+
+    @Test
+    public void testDay_roundDown() {
+        ZonedCalendarResolution day = ZonedCalendarResolution.of(LONDON, ZonedCalendarResolution.Unit.DAY);
+
+        // during summer time, the day starts at 23:00 UTC
+        Instant instant = Instant.parse("2022-07-26T22:30:00Z");
+        Instant roundDown = day.roundDown(instant);
+
+        assertEquals(Instant.parse("2022-07-25T23:00:00Z"), roundDown);
+        assertEquals(roundDown, day.roundDown(roundDown));
+    }
+
+    @Test
+    public void testDay_next() {
+        ZonedCalendarResolution day = ZonedCalendarResolution.of(LONDON, ZonedCalendarResolution.Unit.DAY);
+
+        // the day on which the clocks go forward is 23 hours long
+        Instant start = Instant.parse("2022-03-27T00:00:00Z");
+        Instant next = day.next(start);
+        assertEquals(Instant.parse("2022-03-27T23:00:00Z"), next);
+
+        // the day on which they go back is 25 hours long
+        start = Instant.parse("2022-10-29T23:00:00Z");
+        next = day.next(start.plusSeconds(1));
+        assertEquals(Instant.parse("2022-10-31T00:00:00Z"), next);
+    }
+
+    @Test
+    public void testMonth_roundUp() {
+        ZonedCalendarResolution month = ZonedCalendarResolution.of(LONDON, ZonedCalendarResolution.Unit.MONTH);
+
+        Instant instant = Instant.parse("2022-09-26T10:12:20.5Z");
+        Instant roundUp = month.roundUp(instant);
+
+        assertEquals(Instant.parse("2022-09-30T23:00:00Z"), roundUp);
+        assertEquals(roundUp, month.roundUp(roundUp));
+        // October ends after the clocks go back
+        assertEquals(Instant.parse("2022-11-01T00:00:00Z"), month.next(roundUp));
+    }
+
+    @Test
+    public void testYear_matchesCalendarResolution() {
+        // in UTC, the boundaries are those of the CalendarResolution
+        ZonedCalendarResolution year = ZonedCalendarResolution.of(ZoneOffset.UTC, ZonedCalendarResolution.Unit.YEAR);
+
+        Instant instant = Instant.parse("2022-09-26T10:12:20Z");
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(CalendarResolution.YEAR.roundDown(instant), year.roundDown(instant));
+            assertEquals(CalendarResolution.YEAR.roundUp(instant), year.roundUp(instant));
+            assertEquals(CalendarResolution.YEAR.next(instant), year.next(instant));
+            instant = instant.plus(37, ChronoUnit.HOURS);
+        }
+    }
+
+    @Test
+    public void testOutsideTable() {
+        ZonedCalendarResolution month = ZonedCalendarResolution.of(LONDON, ZonedCalendarResolution.Unit.MONTH);
+
+        assertEquals(Instant.parse("2150-06-01T00:00:00Z").minus(1, ChronoUnit.HOURS),
+            month.roundDown(Instant.parse("2150-06-15T10:00:00Z")));
+        assertEquals(Instant.parse("1960-07-01T00:00:00Z").minus(1, ChronoUnit.HOURS),
+            month.next(Instant.parse("1960-06-15T10:00:00Z")));
+    }
+
+    @Test
+    public void testInstancesAreShared() {
+        assertSame(ZonedCalendarResolution.of(LONDON, ZonedCalendarResolution.Unit.DAY),
+            ZonedCalendarResolution.of(ZoneId.of("Europe/London"), ZonedCalendarResolution.Unit.DAY));
+        assertEquals(ZonedCalendarResolution.of(LONDON, ZonedCalendarResolution.Unit.DAY),
+            ZonedCalendarResolution.of(LONDON, ZonedCalendarResolution.Unit.MONTH).getLower().orElseThrow());
+    }
+}
@@ -0,0 +1,178 @@
+package com.hillayes.accumulator.warehouse;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Governs the size of the time-slices into which warehouse requests are divided,
+ * and the number of those requests that may be in flight at any one time.
+ * <p>
+ * Both are tuned using an AIMD (additive-increase, multiplicative-decrease)
+ * algorithm, based on the observed response times and failures. Whilst the
+ * warehouse responds within the target latency, the concurrency limit and slice
+ * size are increased in small steps. When a response is slow, or fails, they are
+ * cut by the configured backoff ratio. The result is that the load placed on the
+ * warehouse hovers around the point at which its response times begin to suffer.
+ * <p>
+ * The slice size is tuned in small steps, but requests are divided at a size taken
+ * from a fixed ladder: the min slice size doubled, up to the max slice size. So
+ * overlapping requests issued either side of an adjustment are still divided into
+ * the same slices; which can then be shared whilst in flight.
+ * <p>
+ * On top of the concurrency limit, a token-bucket caps the rate at which requests
+ * are issued.
+ */
+@Slf4j
+public class AdaptiveLimiter {
+    private final WarehouseConfig config;
+    private final TokenBucket rateLimit;
+    private final LatencyTracker latencies;
+
+    // uses a ReentrantLock so that waiting virtual threads don't pin their carrier threads
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+
+    private double concurrencyLimit;
+    private long sliceSize;
+    private int inFlight;
+
+    public AdaptiveLimiter(WarehouseConfig aConfig) {
+        config = aConfig;
+        rateLimit = new TokenBucket(aConfig.getRequestsPerSecond(), aConfig.getBurstSize());
+        latencies = new LatencyTracker(aConfig.getHedgeSampleSize());
+        concurrencyLimit = aConfig.getInitialConcurrency();
+        sliceSize = aConfig.getInitialSliceSize().toMillis();
+    }
+
+    /**
+     * Returns the duration to which requests should currently be divided; the tuned slice
+     * size rounded down to the ladder. It need not be a whole number of periods; each
+     * request rounds it down to whole periods of its resolution (see
+     * {@link WarehouseRequest#divide(Duration)}).
+     */
+    public Duration getSliceSize() {
+        lock.lock();
+        try {
+            return Duration.ofMillis(quantize(sliceSize));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rounds the given slice size down to the ladder of sizes at which requests are
+     * divided; the min slice size multiplied by a power of two. The max slice size is
+     * the top of the ladder.
+     */
+    private long quantize(long aSliceSize) {
+        long max = config.getMaxSliceSize().toMillis();
+        if (aSliceSize >= max) {
+            return max;
+        }
+
+        long result = Math.max(1, config.getMinSliceSize().toMillis());
+        while (result * 2 <= aSliceSize) {
+            result *= 2;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the recent response times of successful requests.
+     */
+    public LatencyTracker getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * Returns the number of concurrent requests currently permitted.
+     */
+    public int getConcurrencyLimit() {
+        lock.lock();
+        try {
+            return (int) concurrencyLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until a request may be issued to the warehouse; both within the concurrency
+     * limit and the rate limit. Each successful call must be followed by a call to
+     * {@link #release(Duration, boolean)} when the request completes, or to
+     * {@link #release()} if the request is cancelled.
+     *
+     * @throws InterruptedException if interrupted whilst waiting.
+     */
+    public void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= (int) concurrencyLimit) {
+                available.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            rateLimit.acquire();
+        } catch (InterruptedException e) {
+            release();
+            throw e;
+        }
+    }
+
+    /**
+     * Records the completion of a request issued following a call to {@link #acquire()},
+     * and adjusts the concurrency limit and slice size according to its outcome.
+     *
+     * @param aLatency the time taken for the warehouse to respond.
+     * @param aSuccess true if the request completed successfully.
+     */
+    public void release(Duration aLatency, boolean aSuccess) {
+        if (aSuccess) {
+            latencies.record(aLatency);
+        }
+
+        lock.lock();
+        try {
+            if ((aSuccess) && (aLatency.compareTo(config.getTargetLatency()) <= 0)) {
+                // additive increase - roughly one request per round of the current limit
+                concurrencyLimit = Math.min(config.getMaxConcurrency(), concurrencyLimit + 1 / concurrencyLimit);
+                sliceSize = Math.min(config.getMaxSliceSize().toMillis(),
+                    sliceSize + config.getSliceIncrement().toMillis());
+            } else {
+                // multiplicative decrease
+                concurrencyLimit = Math.max(config.getMinConcurrency(), concurrencyLimit * config.getBackoffRatio());
+                sliceSize = Math.max(config.getMinSliceSize().toMillis(),
+                    (long) (sliceSize * config.getBackoffRatio()));
+
+                log.debug("Warehouse limits reduced [success: {}, latency: {}, concurrency: {}, sliceSize: {}ms]",
+                    aSuccess, aLatency, concurrencyLimit, sliceSize);
+            }
+
+            inFlight--;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a concurrency permit without adjusting the limits. Used when a request
+     * is cancelled, as its response time says nothing of the warehouse's performance.
+     */
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.hillayes.accumulator.warehouse;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveLimiterTest {
+    private final WarehouseConfig config = WarehouseConfig.builder()
+        .initialSliceSize(Duration.ofMinutes(120))
+        .minSliceSize(Duration.ofMinutes(15))
+        .maxSliceSize(Duration.ofMinutes(180))
+        .sliceIncrement(Duration.ofMinutes(15))
+        .initialConcurrency(8)
+        .minConcurrency(1)
+        .maxConcurrency(10)
+        .targetLatency(Duration.ofSeconds(1))
+        .build();
+
+    @Test
+    public void testFastResponsesIncreaseLimits() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(config);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire();
+            limiter.release(Duration.ofMillis(100), true);
+        }
+
+        // both limits are increased, but not beyond their maximums
+        assertEquals(10, limiter.getConcurrencyLimit());
+        assertEquals(Duration.ofMinutes(180), limiter.getSliceSize());
+    }
+
+    @Test
+    public void testSlowResponsesReduceLimits() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(config);
+
+        limiter.acquire();
+        limiter.release(Duration.ofSeconds(2), true);
+
+        assertEquals(4, limiter.getConcurrencyLimit());
+        assertEquals(Duration.ofMinutes(60), limiter.getSliceSize());
+    }
+
+    @Test
+    public void testFailuresReduceLimits() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(config);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire();
+            limiter.release(Duration.ofMillis(100), false);
+        }
+
+        // both limits are reduced, but not below their minimums
+        assertEquals(1, limiter.getConcurrencyLimit());
+        assertEquals(Duration.ofMinutes(15), limiter.getSliceSize());
+    }
+
+    @Test
+    public void testSliceSizeIsQuantized() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(config);
+
+        // the tuned size grows from 120 to 165 minutes, but the ladder's rung is unchanged
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire();
+            limiter.release(Duration.ofMillis(100), true);
+            assertEquals(Duration.ofMinutes(120), limiter.getSliceSize());
+        }
+
+        // a backoff to 82.5 minutes falls to the rung below
+        limiter.acquire();
+        limiter.release(Duration.ofSeconds(2), true);
+        assertEquals(Duration.ofMinutes(60), limiter.getSliceSize());
+    }
+
+    @Test
+    public void testConcurrencyIsLimited() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(WarehouseConfig.builder()
+            .initialConcurrency(1)
+            .build());
+
+        limiter.acquire();
+
+        // a second request must wait for the first to be released
+        Thread waiting = Thread.ofVirtual().start(() -> {
+            try {
+                limiter.acquire();
+                limiter.release(Duration.ofMillis(100), true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiting.join(Duration.ofMillis(200));
+        assertTrue(waiting.isAlive());
+
+        limiter.release(Duration.ofMillis(100), true);
+        waiting.join(Duration.ofSeconds(1));
+        assertFalse(waiting.isAlive());
+    }
+}
@@ -0,0 +1,73 @@
+package com.hillayes.accumulator.warehouse;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Records the most recent response times of the warehouse, in a fixed-size ring
+ * buffer, from which percentiles can be calculated.
+ */
+public class LatencyTracker {
+    private final long[] samples;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private int next;
+    private int count;
+
+    public LatencyTracker(int aCapacity) {
+        samples = new long[aCapacity];
+    }
+
+    /**
+     * Records the given response time; replacing the oldest if the buffer is full.
+     *
+     * @param aLatency the response time to be recorded.
+     */
+    public void record(Duration aLatency) {
+        lock.lock();
+        try {
+            samples[next] = aLatency.toNanos();
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of response times currently recorded.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the given percentile of the recorded response times. If no response
+     * times have been recorded, the result will be zero.
+     *
+     * @param aPercentile the percentile required, in the range 0 to 1 (e.g. 0.95).
+     * @return the given percentile of the recorded response times.
+     */
+    public Duration percentile(double aPercentile) {
+        long[] sorted;
+        lock.lock();
+        try {
+            if (count == 0) {
+                return Duration.ZERO;
+            }
+            sorted = Arrays.copyOf(samples, count);
+        } finally {
+            lock.unlock();
+        }
+
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(aPercentile * sorted.length) - 1;
+        return Duration.ofNanos(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+    }
+}
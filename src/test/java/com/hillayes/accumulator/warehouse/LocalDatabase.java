@@ -1,5 +1,7 @@
 package com.hillayes.accumulator.warehouse;
 
+import com.hillayes.accumulator.DateRange;
+import com.hillayes.accumulator.EmptyRanges;
 import com.hillayes.accumulator.Resolution;
 import com.hillayes.accumulator.ConcurrentResolutionRepository;
 import lombok.extern.slf4j.Slf4j;
@@ -12,11 +14,14 @@ import java.util.*;
 public class LocalDatabase implements ConcurrentResolutionRepository.ThreadedDatabase<LocalData> {
     private static final List<LocalData> EMPTY_RANGE = List.of();
 
-    // the repository that will store the fetched data - could be a database
-    private final Map<Resolution, List<LocalData>> repository = new HashMap<>();
+    // the repository that will store the fetched data, by series - could be a database
+    private final Map<String, Map<Resolution, List<LocalData>>> repository = new HashMap<>();
+
+    // the ranges known to contain no data
+    private final EmptyRanges emptyRanges = new EmptyRanges();
 
     @Override
-    public void saveBatch(Spliterator<LocalData> aBatch) {
+    public void saveBatch(String aSeries, Spliterator<LocalData> aBatch) {
         log.debug("Saving batch of size: {}", aBatch.estimateSize());
         long size = aBatch.estimateSize();
         List<LocalData> list = new ArrayList<>((int) size);
@@ -28,6 +33,7 @@ public class LocalDatabase implements ConcurrentResolutionRepository.ThreadedDat
 
         synchronized (repository) {
             List<LocalData> resolution = repository
+                .computeIfAbsent(aSeries, k -> new HashMap<>())
                 .computeIfAbsent(list.get(0).getResolution(), k -> new ArrayList<>(list.size()));
             resolution.addAll(list);
         }
@@ -43,15 +49,38 @@ public class LocalDatabase implements ConcurrentResolutionRepository.ThreadedDat
     }
 
     @Override
-    public List<LocalData> get(Resolution aResolution, Instant aStartDate, Instant aEndDate) {
+    public List<LocalData> get(String aSeries, Resolution aResolution, Instant aStartDate, Instant aEndDate) {
         synchronized (repository) {
-            log.debug("Looking for data [resolution: {}, startDate: {}, endDate: {}]",
-                aResolution, aStartDate, aEndDate);
-            return repository.getOrDefault(aResolution, EMPTY_RANGE).stream()
+            log.debug("Looking for data [series: {}, resolution: {}, startDate: {}, endDate: {}]",
+                aSeries, aResolution, aStartDate, aEndDate);
+            return repository.getOrDefault(aSeries, Map.of()).getOrDefault(aResolution, EMPTY_RANGE).stream()
                 .filter(data -> aStartDate.compareTo(data.getEndDate()) <= 0)
                 .filter(data -> aEndDate.compareTo(data.getStartDate()) >= 0)
                 .sorted(Comparator.comparing(LocalData::getStartDate))
                 .toList();
         }
     }
+
+    @Override
+    public Map<String, List<LocalData>> get(Collection<String> aSeries, Resolution aResolution,
+                                            Instant aStartDate, Instant aEndDate) {
+        // read all series under a single lock - as a single query would
+        synchronized (repository) {
+            Map<String, List<LocalData>> result = new HashMap<>();
+            aSeries.forEach(key -> result.put(key, get(key, aResolution, aStartDate, aEndDate)));
+            return result;
+        }
+    }
+
+    @Override
+    public List<DateRange> getEmpty(String aSeries, Resolution aResolution, Instant aStartDate, Instant aEndDate) {
+        return emptyRanges.get(aSeries, aResolution, aStartDate, aEndDate);
+    }
+
+    @Override
+    public boolean saveEmpty(String aSeries, Resolution aResolution, List<DateRange> aRanges) {
+        log.debug("Saving empty ranges [series: {}, resolution: {}, size: {}]", aSeries, aResolution, aRanges.size());
+        emptyRanges.add(aSeries, aResolution, aRanges);
+        return true;
+    }
 }
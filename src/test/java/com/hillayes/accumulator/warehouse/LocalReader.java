@@ -10,11 +10,20 @@ public class LocalReader implements WarehouseReader<LocalData> {
 
     @Override
     public LocalData readLine(WarehouseRequest aRequest, String aLine, int aIndex) {
-        // parse the warehouse data
-        String[] parts = aLine.split(",");
-        Instant timestamp = Instant.ofEpochSecond(Long.parseLong(parts[0]));
-        long units = Long.parseLong(parts[1]);
-        long blocks = Long.parseLong(parts[2]);
+        return readLine(aRequest, aLine, 0, aLine.length(), aIndex);
+    }
+
+    @Override
+    public LocalData readLine(WarehouseRequest aRequest, CharSequence aBuffer, int aStart, int aEnd, int aIndex) {
+        // parse the warehouse data - in place, without splitting the line
+        int end = indexOf(aBuffer, ',', aStart, aEnd);
+        Instant timestamp = Instant.ofEpochSecond(parseLong(aBuffer, aStart, end));
+
+        int start = end + 1;
+        end = indexOf(aBuffer, ',', start, aEnd);
+        long units = parseLong(aBuffer, start, end);
+
+        long blocks = parseLong(aBuffer, end + 1, aEnd);
 
         // data from warehouse is always in the lowest resolution
         return LocalData.builder()
@@ -25,4 +34,50 @@ public class LocalReader implements WarehouseReader<LocalData> {
             .blocks(blocks)
             .build();
     }
+
+    /**
+     * Returns the offset of the given character within the given range of the buffer.
+     * If the character is not found, the end of the range is returned.
+     */
+    private static int indexOf(CharSequence aBuffer, char aChar, int aStart, int aEnd) {
+        int index = aStart;
+        while ((index < aEnd) && (aBuffer.charAt(index) != aChar)) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Parses the decimal long value within the given range of the buffer. The value
+     * must have at least one digit, and must lie within the range of a long.
+     */
+    private static long parseLong(CharSequence aBuffer, int aStart, int aEnd) {
+        boolean negative = (aStart < aEnd) && (aBuffer.charAt(aStart) == '-');
+        int first = negative ? aStart + 1 : aStart;
+        if (first >= aEnd) {
+            throw new NumberFormatException("Empty value at offset " + aStart);
+        }
+
+        // accumulate negatively, as Long.MIN_VALUE has no positive counterpart
+        long result = 0;
+        for (int index = first; index < aEnd; index++) {
+            int digit = aBuffer.charAt(index) - '0';
+            if ((digit < 0) || (digit > 9)) {
+                throw new NumberFormatException("Invalid digit at offset " + index);
+            }
+            try {
+                result = Math.subtractExact(Math.multiplyExact(result, 10), digit);
+            } catch (ArithmeticException e) {
+                throw new NumberFormatException("Value out of range at offset " + aStart);
+            }
+        }
+
+        if (negative) {
+            return result;
+        }
+        if (result == Long.MIN_VALUE) {
+            throw new NumberFormatException("Value out of range at offset " + aStart);
+        }
+        return -result;
+    }
 }
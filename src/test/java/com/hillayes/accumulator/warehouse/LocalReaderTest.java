@@ -0,0 +1,83 @@
+package com.hillayes.accumulator.warehouse;
+
+import com.hillayes.accumulator.resolutions.DefaultResolution;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LocalReaderTest {
+    private final WarehouseRequest request = WarehouseRequest.builder()
+        .resolution(DefaultResolution.MINUTE)
+        .build();
+
+    @Test
+    public void testReadLine() {
+        LocalData data = new LocalReader().readLine(request, "1664186400,123,45", 0);
+
+        assertEquals(Instant.parse("2022-09-26T10:00:00Z"), data.getStartDate());
+        assertEquals(Instant.parse("2022-09-26T10:01:00Z"), data.getEndDate());
+        assertEquals(123, data.getUnits());
+        assertEquals(45, data.getBlocks());
+    }
+
+    @Test
+    public void testReadAll() {
+        StringBuilder buffer = new StringBuilder()
+            .append("1664186400,123,45\n")
+            .append("1664186460,0,-2\n")
+            .append("1664186520,9876543210,1\n");
+
+        List<LocalData> result = new ArrayList<>();
+        int count = new LocalReader().readAll(request, buffer, 0, result::add);
+
+        assertEquals(3, count);
+        assertEquals(3, result.size());
+        assertEquals(Instant.parse("2022-09-26T10:01:00Z"), result.get(1).getStartDate());
+        assertEquals(0, result.get(1).getUnits());
+        assertEquals(-2, result.get(1).getBlocks());
+        assertEquals(9876543210L, result.get(2).getUnits());
+    }
+
+    @Test
+    public void testReadLine_InvalidDigit() {
+        assertThrows(NumberFormatException.class, () ->
+            new LocalReader().readLine(request, "1664186400,12x,45", 0));
+    }
+
+    @Test
+    public void testReadLine_EmptyValue() {
+        assertThrows(NumberFormatException.class, () ->
+            new LocalReader().readLine(request, "1664186400,,45", 0));
+        assertThrows(NumberFormatException.class, () ->
+            new LocalReader().readLine(request, "1664186400,123,", 0));
+    }
+
+    @Test
+    public void testReadLine_SignWithoutDigits() {
+        assertThrows(NumberFormatException.class, () ->
+            new LocalReader().readLine(request, "1664186400,-,45", 0));
+    }
+
+    @Test
+    public void testReadLine_Overflow() {
+        assertThrows(NumberFormatException.class, () ->
+            new LocalReader().readLine(request, "1664186400,9223372036854775808,45", 0));
+        assertThrows(NumberFormatException.class, () ->
+            new LocalReader().readLine(request, "1664186400,-9223372036854775809,45", 0));
+        assertThrows(NumberFormatException.class, () ->
+            new LocalReader().readLine(request, "1664186400,99999999999999999999,45", 0));
+    }
+
+    @Test
+    public void testReadLine_LimitsOfRange() {
+        LocalData data = new LocalReader().readLine(request, "1664186400,9223372036854775807,-9223372036854775808", 0);
+
+        assertEquals(Long.MAX_VALUE, data.getUnits());
+        assertEquals(Long.MIN_VALUE, data.getBlocks());
+    }
+}
@@ -7,6 +7,7 @@ import com.hillayes.accumulator.resolutions.DefaultResolution;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.stream.Stream;
 
 public class LocalRepository extends ConcurrentResolutionRepository<LocalData> {
     // the remote source from which data of the lowest resolution is fetched
@@ -21,18 +22,59 @@ public class LocalRepository extends ConcurrentResolutionRepository<LocalData> {
         this.warehouseRepository = warehouseRepository;
     }
 
+    public LocalRepository(ConcurrentResolutionRepository.ThreadedDatabase<LocalData> database,
+                           WarehouseRepository warehouseRepository,
+                           int persistedFilterSize) {
+        super(database, persistedFilterSize, LocalData::getResolution);
+        this.warehouseRepository = warehouseRepository;
+    }
+
     @Override
-    public List<LocalData> fetch(Instant aStartDate, Instant aEndDate) {
-        WarehouseRequest request = WarehouseRequest.builder()
+    public List<LocalData> fetch(String aSeries, Instant aStartDate, Instant aEndDate) {
+        return warehouseRepository.get(newRequest(aSeries, aStartDate, aEndDate), reader);
+    }
+
+    @Override
+    public Stream<LocalData> fetchStream(String aSeries, Instant aStartDate, Instant aEndDate) {
+        return warehouseRepository.stream(newRequest(aSeries, aStartDate, aEndDate), reader);
+    }
+
+    @Override
+    public Map<String, List<LocalData>> fetch(Collection<String> aSeries, Instant aStartDate, Instant aEndDate) {
+        // start the fetch of every series before consuming any, so that the
+        // slices of all series are requested from the warehouse together
+        Map<String, Stream<LocalData>> streams = new HashMap<>();
+        try {
+            aSeries.forEach(key -> streams.put(key, fetchStream(key, aStartDate, aEndDate)));
+
+            Map<String, List<LocalData>> result = new HashMap<>();
+            streams.forEach((key, stream) -> result.put(key, stream.toList()));
+            return result;
+        } finally {
+            streams.values().forEach(Stream::close);
+        }
+    }
+
+    @Override
+    public Accumulation<LocalData> newAccumulation(Resolution aResolution, Instant aStartDate, Instant aEndDate) {
+        return new LocalDataAccumulation(aResolution, aStartDate, aEndDate);
+    }
+
+    private WarehouseRequest newRequest(String aSeries, Instant aStartDate, Instant aEndDate) {
+        return WarehouseRequest.builder()
+            .nameserver(nameserver(aSeries))
             .resolution(DefaultResolution.MINUTE)
             .startDate(aStartDate)
             .endDate(aEndDate)
             .build();
-        return warehouseRepository.get(request, reader);
     }
 
-    @Override
-    public Accumulation<LocalData> newAccumulation(Resolution aResolution, Instant aStartDate, Instant aEndDate) {
-        return new LocalDataAccumulation(aResolution, aStartDate, aEndDate);
+    /**
+     * Maps the given series key to the warehouse partition (nameserver) in which that
+     * series is held. Here, the series key of any series other than the default is the
+     * nameserver's id.
+     */
+    private int nameserver(String aSeries) {
+        return DEFAULT_SERIES.equals(aSeries) ? 0 : Integer.parseInt(aSeries);
     }
 }
@@ -1,15 +1,22 @@
 package com.hillayes.accumulator.warehouse;
 
+import com.hillayes.accumulator.LoaderConfig;
 import com.hillayes.accumulator.Resolution;
 import com.hillayes.accumulator.ResolutionLoader;
+import com.hillayes.accumulator.ResolutionRepository;
+import com.hillayes.accumulator.resolutions.CalendarResolution;
 import com.hillayes.accumulator.resolutions.DefaultResolution;
 import lombok.extern.slf4j.Slf4j;
+import org.awaitility.Awaitility;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -70,4 +77,101 @@ public class ResolutionLoaderTest {
             prev.set(entry);
         });
     }
+
+    @Test
+    public void testReadAhead() {
+        LocalDatabase database = new LocalDatabase();
+        LocalRepository repository = new LocalRepository(database, new WarehouseRepository());
+        ResolutionLoader<LocalData> loader = new ResolutionLoader<>(repository, LoaderConfig.builder()
+            .readAheadThreads(1)
+            .build());
+
+        Resolution resolution = DefaultResolution.DAY;
+        Instant start = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(3, ChronoUnit.DAYS);
+        Instant end = start.plus(1, ChronoUnit.DAYS);
+
+        assertEquals(1, loader.load(resolution, start, end).size());
+
+        // the preceding and following days are loaded in the background
+        Awaitility.await().atMost(Duration.ofSeconds(20)).pollInterval(Duration.ofMillis(500))
+            .until(() -> database.get(ResolutionRepository.DEFAULT_SERIES, resolution, start.minus(1, ChronoUnit.DAYS), end.plus(1, ChronoUnit.DAYS)).size() == 3);
+    }
+
+    @Test
+    public void testPersistedElementsAreNotRewritten() {
+        // a database that counts the elements written to it
+        AtomicInteger written = new AtomicInteger();
+        LocalDatabase database = new LocalDatabase() {
+            @Override
+            public void saveBatch(String aSeries, Spliterator<LocalData> aBatch) {
+                written.addAndGet((int) aBatch.estimateSize());
+                super.saveBatch(aSeries, aBatch);
+            }
+        };
+        LocalRepository repository = new LocalRepository(database, new WarehouseRepository(), 1000);
+
+        Resolution resolution = DefaultResolution.HOUR;
+        Instant start = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(3, ChronoUnit.DAYS);
+        List<LocalData> elements = new ArrayList<>();
+        for (int hour = 0; hour < 24; hour++) {
+            Instant hourStart = start.plus(hour, ChronoUnit.HOURS);
+            elements.add(repository.newAccumulation(resolution, hourStart, resolution.next(hourStart)).complete());
+        }
+
+        repository.save(ResolutionRepository.DEFAULT_SERIES, elements);
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(repository::isBatchPending);
+        assertEquals(24, written.get());
+
+        // the same elements, saved again by a concurrent request, are dropped
+        repository.save(ResolutionRepository.DEFAULT_SERIES, elements);
+
+        // those of another series are not
+        repository.save("1", elements);
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(repository::isBatchPending);
+        assertEquals(48, written.get());
+        assertEquals(24, database.get(ResolutionRepository.DEFAULT_SERIES, resolution,
+            start, start.plus(1, ChronoUnit.DAYS)).size());
+    }
+
+    @Test
+    public void testCoincidingResolutionsAreBothPersisted() {
+        LocalDatabase database = new LocalDatabase();
+        LocalRepository repository = new LocalRepository(database, new WarehouseRepository(), 1000);
+
+        // the DAYs of the two resolutions cover the same date range
+        Instant start = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(3, ChronoUnit.DAYS);
+        Instant end = start.plus(1, ChronoUnit.DAYS);
+        repository.save(ResolutionRepository.DEFAULT_SERIES,
+            List.of(repository.newAccumulation(DefaultResolution.DAY, start, end).complete()));
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(repository::isBatchPending);
+
+        repository.save(ResolutionRepository.DEFAULT_SERIES,
+            List.of(repository.newAccumulation(CalendarResolution.DAY, start, end).complete()));
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(repository::isBatchPending);
+
+        assertEquals(1, database.get(ResolutionRepository.DEFAULT_SERIES, DefaultResolution.DAY, start, end).size());
+        assertEquals(1, database.get(ResolutionRepository.DEFAULT_SERIES, CalendarResolution.DAY, start, end).size());
+    }
+
+    @Test
+    public void testFalsePositivesAreStillPersisted() {
+        LocalDatabase database = new LocalDatabase();
+        LocalRepository repository = new LocalRepository(database, new WarehouseRepository(), 1000);
+
+        // save enough distinct minutes, in successive batches, that the filter reports some falsely
+        Instant start = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(5, ChronoUnit.DAYS);
+        Instant minute = start;
+        for (int batch = 0; batch < 30; batch++) {
+            List<LocalData> elements = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                elements.add(repository.newAccumulation(DefaultResolution.MINUTE, minute, minute.plus(1, ChronoUnit.MINUTES)).complete());
+                minute = minute.plus(1, ChronoUnit.MINUTES);
+            }
+            repository.save(ResolutionRepository.DEFAULT_SERIES, elements);
+            Awaitility.await().atMost(Duration.ofSeconds(5)).until(repository::isBatchPending);
+        }
+
+        // every minute was written
+        assertEquals(3000, database.get(ResolutionRepository.DEFAULT_SERIES, DefaultResolution.MINUTE, start, minute).size());
+    }
 }
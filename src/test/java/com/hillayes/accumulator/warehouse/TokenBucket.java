@@ -0,0 +1,60 @@
+package com.hillayes.accumulator.warehouse;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A simple token-bucket rate limiter. Tokens are replenished at a constant rate,
+ * up to the bucket's capacity, and each request must take a token before it can
+ * proceed. The capacity allows short bursts above the sustained rate.
+ * <p>
+ * Uses a ReentrantLock, rather than synchronized, so that waiting virtual threads
+ * don't pin their carrier threads.
+ */
+public class TokenBucket {
+    private final double tokensPerNano;
+    private final double capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double aTokensPerSecond, int aCapacity) {
+        tokensPerNano = aTokensPerSecond / Duration.ofSeconds(1).toNanos();
+        capacity = aCapacity;
+        tokens = aCapacity;
+        lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Takes a token from the bucket, waiting until one is available.
+     *
+     * @throws InterruptedException if interrupted whilst waiting for a token.
+     */
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            lock.lock();
+            try {
+                refill();
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+
+                // calculate the time until the next token is available
+                waitNanos = (long) Math.ceil((1 - tokens) / tokensPerNano);
+            } finally {
+                lock.unlock();
+            }
+
+            Thread.sleep(Duration.ofNanos(waitNanos));
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,123 @@
+package com.hillayes.accumulator.warehouse;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * The configuration governing how the WarehouseRepository divides requests and
+ * paces their submission to the warehouse. The defaults are intended as a
+ * starting point from which the AdaptiveLimiter will tune the slice size and
+ * concurrency to the warehouse's observed performance.
+ */
+@Builder
+@Getter
+@ToString
+public class WarehouseConfig {
+    /**
+     * The duration to which requests will initially be divided before submitting them
+     * to the warehouse.
+     */
+    @Builder.Default
+    private final Duration initialSliceSize = Duration.ofMinutes(120);
+
+    /**
+     * The smallest duration to which requests will be divided.
+     */
+    @Builder.Default
+    private final Duration minSliceSize = Duration.ofMinutes(15);
+
+    /**
+     * The largest duration to which requests will be divided.
+     */
+    @Builder.Default
+    private final Duration maxSliceSize = Duration.ofHours(6);
+
+    /**
+     * The amount by which the slice size is grown after each response that
+     * completes within the target latency.
+     */
+    @Builder.Default
+    private final Duration sliceIncrement = Duration.ofMinutes(15);
+
+    /**
+     * The number of concurrent warehouse requests initially permitted.
+     */
+    @Builder.Default
+    private final int initialConcurrency = 16;
+
+    /**
+     * The fewest concurrent warehouse requests to which the limit will be reduced.
+     */
+    @Builder.Default
+    private final int minConcurrency = 1;
+
+    /**
+     * The most concurrent warehouse requests to which the limit will be increased.
+     */
+    @Builder.Default
+    private final int maxConcurrency = 64;
+
+    /**
+     * The response time above which the warehouse is considered to be overloaded.
+     */
+    @Builder.Default
+    private final Duration targetLatency = Duration.ofSeconds(2);
+
+    /**
+     * The ratio by which the concurrency limit and slice size are reduced when
+     * a response is slow or fails.
+     */
+    @Builder.Default
+    private final double backoffRatio = 0.5;
+
+    /**
+     * The sustained rate, per second, at which requests may be issued to the warehouse.
+     */
+    @Builder.Default
+    private final double requestsPerSecond = 50;
+
+    /**
+     * The number of requests that may be issued in a burst above the sustained rate.
+     */
+    @Builder.Default
+    private final int burstSize = 50;
+
+    /**
+     * Whether a duplicate of a slow request should be issued. The response of whichever
+     * request completes first is taken, and the other cancelled.
+     */
+    @Builder.Default
+    private final boolean hedgingEnabled = false;
+
+    /**
+     * The percentile of recent response times after which, if a request has not
+     * completed, a duplicate (hedged) request will be issued.
+     */
+    @Builder.Default
+    private final double hedgePercentile = 0.95;
+
+    /**
+     * The number of response times to be recorded before requests will be hedged.
+     * Also governs the number of recent response times from which the percentile
+     * is calculated.
+     */
+    @Builder.Default
+    private final int hedgeSampleSize = 100;
+
+    /**
+     * The number of times a failed request will be retried before the whole
+     * fetch, of which it is a part, is failed.
+     */
+    @Builder.Default
+    private final int maxRetries = 2;
+
+    /**
+     * The delay before the first retry of a failed request. The delay is doubled
+     * for each subsequent retry.
+     */
+    @Builder.Default
+    private final Duration retryBackoff = Duration.ofMillis(200);
+}
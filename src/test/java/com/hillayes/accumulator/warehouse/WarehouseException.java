@@ -0,0 +1,21 @@
+package com.hillayes.accumulator.warehouse;
+
+/**
+ * Raised when a request to the warehouse cannot be completed; for example, when
+ * a portion of the request continues to fail after all retries are exhausted.
+ */
+public class WarehouseException extends RuntimeException {
+    private final WarehouseRequest request;
+
+    public WarehouseException(WarehouseRequest aRequest, Throwable cause) {
+        super("Failed to retrieve warehouse data.", cause);
+        request = aRequest;
+    }
+
+    /**
+     * Returns the request that failed.
+     */
+    public WarehouseRequest getRequest() {
+        return request;
+    }
+}
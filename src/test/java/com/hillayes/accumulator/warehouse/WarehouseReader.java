@@ -22,9 +22,17 @@
  */
 package com.hillayes.accumulator.warehouse;
 
+import java.util.function.Consumer;
+
 /**
  * A callback interface passed to the warehouse repository when retrieving data and used to
  * parse the result sets retrieved from the warehouse.
+ * <p>
+ * The warehouse repository passes the whole of each response to {@link #readAll}, which
+ * identifies each line by its offsets within the response and passes those offsets to
+ * {@link #readLine(WarehouseRequest, CharSequence, int, int, int)}. Implementations
+ * should override that method to parse the data directly from the response, without
+ * creating an intermediate String for each line.
  *
  * @param <T> the type of object the reader will produce.
  */
@@ -42,4 +50,51 @@ public interface WarehouseReader<T> {
      * @return the parsed object.
      */
     T readLine(WarehouseRequest aRequest, String aLine, int aIndex);
+
+    /**
+     * The callback method used to parse the line of warehouse data that lies between the
+     * given offsets of the given buffer, and return the resulting object.
+     * <p>
+     * The default implementation copies the line to a String and passes it to
+     * {@link #readLine(WarehouseRequest, String, int)}.
+     *
+     * @param aRequest the request that initiated the entire result set. Passed for information only.
+     * @param aBuffer the buffer holding the warehouse data.
+     * @param aStart the offset of the line's first character within the buffer, inclusive.
+     * @param aEnd the offset of the line's last character within the buffer, exclusive.
+     * @param aIndex the index of the line within the entire result set.
+     * @return the parsed object.
+     */
+    default T readLine(WarehouseRequest aRequest, CharSequence aBuffer, int aStart, int aEnd, int aIndex) {
+        return readLine(aRequest, aBuffer.subSequence(aStart, aEnd).toString(), aIndex);
+    }
+
+    /**
+     * Parses each of the new-line delimited lines of warehouse data in the given buffer,
+     * and passes the resulting objects to the given consumer in the order they appear.
+     *
+     * @param aRequest the request that initiated the entire result set. Passed for information only.
+     * @param aBuffer the buffer holding the warehouse data.
+     * @param aFirstIndex the index, within the entire result set, of the buffer's first line.
+     * @param aConsumer the consumer to which each parsed object is passed.
+     * @return the number of lines parsed.
+     */
+    default int readAll(WarehouseRequest aRequest, CharSequence aBuffer, int aFirstIndex, Consumer<T> aConsumer) {
+        int index = aFirstIndex;
+        int length = aBuffer.length();
+        int start = 0;
+        while (start < length) {
+            // find the end of the line
+            int end = start;
+            while ((end < length) && (aBuffer.charAt(end) != '\n')) {
+                end++;
+            }
+
+            if (end > start) {
+                aConsumer.accept(readLine(aRequest, aBuffer, start, end, index++));
+            }
+            start = end + 1;
+        }
+        return index - aFirstIndex;
+    }
 }
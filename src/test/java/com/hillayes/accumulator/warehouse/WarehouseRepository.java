@@ -30,6 +30,10 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 /**
  * A repository for raw data that is to be fed into the accumulation process.
@@ -42,27 +46,42 @@ import java.util.concurrent.*;
  */
 @Slf4j
 public class WarehouseRepository {
-    /**
-     * The duration to which requests will be divided before submitting them to the warehouse.
-     */
-    private static final Duration MAX_REQUEST_SIZE = Duration.ofMinutes(120);
-
     /**
      * Requests to the warehouse are divided into smaller requests and issued, as
      * individual tasks, to this executor service.
      * <p>
-     * The number of threads in this service should be governed by the number of
-     * concurrent requests the warehouse is able to fulfil, and the number of
-     * clients it serves.
+     * The number of concurrent requests issued to the warehouse is governed by the
+     * AdaptiveLimiter, so this service need not limit its number of threads.
      */
     private final ExecutorService executorService;
 
+    /**
+     * Governs the size of the slices into which requests are divided, and the rate
+     * and concurrency at which they are issued to the warehouse.
+     */
+    private final AdaptiveLimiter limiter;
+
+    /**
+     * The sub-requests currently being processed by the warehouse, keyed on the request
+     * and the reader that will parse its response. A sub-request that is already in
+     * flight will be awaited, rather than submitted to the warehouse a second time.
+     */
+    private final ConcurrentMap<InFlightKey, SliceFetch<?>> inFlight = new ConcurrentHashMap<>();
+
+    private final WarehouseConfig config;
+
     public WarehouseRepository() {
         this(Executors.newVirtualThreadPerTaskExecutor());
     }
 
     public WarehouseRepository(ExecutorService aExecutorService) {
+        this(aExecutorService, WarehouseConfig.builder().build());
+    }
+
+    public WarehouseRepository(ExecutorService aExecutorService, WarehouseConfig aConfig) {
         executorService = aExecutorService;
+        config = aConfig;
+        limiter = new AdaptiveLimiter(aConfig);
     }
 
     /**
@@ -80,32 +99,12 @@ public class WarehouseRepository {
      * @return the ordered collection of data retrieved.
      */
     public <T extends DateRangedData> List<T> get(WarehouseRequest aRequest, WarehouseReader<T> aReader) {
-        log.debug("Get warehouse data [request: {}]", aRequest);
         long timer = System.currentTimeMillis();
 
-        // a queue to which futures are gathered on completion
-        ExecutorCompletionService<ResponsePart<T>> completionQueue
-            = new ExecutorCompletionService<>(executorService);
-
-        // divide request into smaller portions of configured temporal units
-        List<WarehouseRequest> requests = aRequest.divide(MAX_REQUEST_SIZE);
-        log.debug("Divided warehouse request into parts [count: {}]", requests.size());
-
-        // submit them to the executor service
-        // create a callable task to process the request
-        // add task to executor and move to completion queue when complete
-        requests.forEach(r -> completionQueue.submit(new WarehouseTask<>(r, aReader)));
-
-        // gather the results of each request
-        List<T> result = requests.stream()
-            .flatMap(request -> {
-                // wait for the next request to complete
-                log.debug("Waiting for next warehouse response");
-                ResponsePart<T> part = getNextResult(completionQueue);
-                return (part == null) ? null : part.data.stream();
-            })
-            .filter(Objects::nonNull)
-            .toList();
+        List<T> result;
+        try (Stream<T> stream = stream(aRequest, aReader)) {
+            result = stream.toList();
+        }
 
         if (log.isDebugEnabled()) {
             log.debug("Got warehouse data [request: {}, size: {}, in: {}ms]",
@@ -115,26 +114,64 @@ public class WarehouseRepository {
         return result;
     }
 
-    private <T extends DateRangedData> ResponsePart<T> getNextResult(ExecutorCompletionService<ResponsePart<T>> completionQueue) {
-        try {
-            Future<ResponsePart<T>> next = completionQueue.take();
-            switch (next.state()) {
-                case Future.State.SUCCESS:
-                    ResponsePart<T> part = next.get();
-                    log.debug("Retrieved warehouse response [startDate: {}, size: {}]", part.startDate, part.size());
-                    return part;
-                case Future.State.FAILED:
-                    log.warn("Failed to retrieve warehouse data.", next.exceptionNow());
-            }
-            return null;
-        } catch (InterruptedException e) {
-            // Preserve interrupt status
-            Thread.currentThread().interrupt();
-            throw new RuntimeException(e);
-        } catch (ExecutionException e) {
-            // the cause is the exception raised by the WarehouseTask
-            throw new RuntimeException(e.getCause());
+    /**
+     * Retrieves the data for the given request from the warehouse, and parses it using the
+     * given WarehouseReader. The data is returned as a stream whose elements are delivered
+     * as they arrive from the warehouse.
+     * <p>
+     * The request may be broken into smaller temporal units, all of which are submitted to
+     * the configured ExecutorService immediately. The responses may arrive in any order, but
+     * each is held back until those preceding it have been delivered. So the stream is in
+     * ascending date order, and the caller may consume each response whilst later ones are
+     * still in flight.
+     *
+     * @param aRequest the request to be completed.
+     * @param aReader the reader used to parse the warehouse data.
+     * @param <T> the class of Warehouse data to be parsed.
+     * @return the ordered stream of data retrieved.
+     */
+    public <T extends DateRangedData> Stream<T> stream(WarehouseRequest aRequest, WarehouseReader<T> aReader) {
+        log.debug("Get warehouse data [request: {}]", aRequest);
+
+        // divide request into smaller portions of the currently preferred temporal units
+        List<WarehouseRequest> requests = aRequest.divide(limiter.getSliceSize());
+        log.debug("Divided warehouse request into parts [count: {}]", requests.size());
+
+        // submit them to the executor service - unless an identical request is already in flight
+        FetchScope<T> scope = new FetchScope<>(aRequest);
+        requests.forEach(r -> scope.fork(submit(r, aReader)));
+
+        // deliver the results of each request in the order they were submitted
+        return scope.stream().onClose(scope::close);
+    }
+
+    /**
+     * Submits the given request to the executor service, unless an identical request
+     * (and reader) is already in flight. In which case, that in-flight request is
+     * joined and returned.
+     *
+     * @param aRequest the request to be submitted.
+     * @param aReader the reader used to parse the warehouse data.
+     * @param <T> the class of Warehouse data to be parsed.
+     * @return the in-flight request that will yield the response to the given request.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends DateRangedData> SliceFetch<T> submit(WarehouseRequest aRequest,
+                                                            WarehouseReader<T> aReader) {
+        InFlightKey key = new InFlightKey(aRequest, aReader);
+        SliceFetch<T> candidate = new SliceFetch<>(key, aRequest, aReader);
+
+        // join any in-flight request that isn't in the process of being cancelled
+        SliceFetch<?> fetch = inFlight.compute(key, (k, existing) ->
+            ((existing != null) && (existing.join())) ? existing : candidate);
+
+        if (fetch != candidate) {
+            log.debug("Awaiting in-flight warehouse request [request: {}]", aRequest);
+            return (SliceFetch<T>) fetch;
         }
+
+        candidate.start();
+        return candidate;
     }
 
     /**
@@ -142,24 +179,45 @@ public class WarehouseRepository {
      * using the given reader and return the resulting collection.
      * <p>
      * Ideally there would be a proxy cache in front of the warehouse so that responses
-     * could be cached. This would prevent duplicate, in-flight requests from adding
-     * unnecessary load to the warehouse. Alternatively, some sort of caching could be
-     * introduced by the WarehouseTask itself - keyed on the WarehouseRequest object.
+     * could be cached. Duplicate, in-flight requests are prevented from adding unnecessary
+     * load to the warehouse by the SliceFetch - keyed on the WarehouseRequest object.
      *
      * @param <T> the class of data to be retrieved and parsed.
      */
     private static class WarehouseTask<T extends DateRangedData> implements Callable<ResponsePart<T>> {
         private final WarehouseRequest request;
         private final WarehouseReader<T> reader;
+        private final AdaptiveLimiter limiter;
 
         public WarehouseTask(WarehouseRequest aRequest,
-                             WarehouseReader<T> aReader) {
+                             WarehouseReader<T> aReader,
+                             AdaptiveLimiter aLimiter) {
             request = aRequest;
             reader = aReader;
+            limiter = aLimiter;
         }
 
         @Override
         public ResponsePart<T> call() throws InterruptedException {
+            // wait until the warehouse can accept another request
+            limiter.acquire();
+
+            long started = System.nanoTime();
+            try {
+                ResponsePart<T> result = fetch();
+                limiter.release(Duration.ofNanos(System.nanoTime() - started), true);
+                return result;
+            } catch (InterruptedException e) {
+                // the request was cancelled
+                limiter.release();
+                throw e;
+            } catch (RuntimeException e) {
+                limiter.release(Duration.ofNanos(System.nanoTime() - started), false);
+                throw e;
+            }
+        }
+
+        private ResponsePart<T> fetch() throws InterruptedException {
             log.debug("Fetching warehouse data [request: {}]", request);
             long timer = System.currentTimeMillis();
 
@@ -174,24 +232,23 @@ public class WarehouseRepository {
             Random random = new Random(request.hashCode());
 
             // create a load of mock data to fill the date range
-            StringBuilder line = new StringBuilder();
+            StringBuilder response = new StringBuilder();
             while (start.isBefore(end)) {
                 int requestCount = random.nextInt(200) + 100;
                 int blockCount = random.nextInt(100) + 2;
 
                 // create a random line of data
-                line.setLength(0);
-                line.append(start.getEpochSecond()).append(',')
+                response.append(start.getEpochSecond()).append(',')
                     .append(requestCount).append(',')
-                    .append(blockCount);
-
-                // parse the data and add to result
-                result.add(reader.readLine(request, line.toString(), result.size()));
+                    .append(blockCount).append('\n');
 
                 // move to next period
                 start = resolution.next(start);
             }
 
+            // parse the whole response and add to result
+            reader.readAll(request, response, 0, result::add);
+
             // sleep to simulate latency
             Thread.sleep(Duration.ofMillis(500 + (long) random.nextInt(5) * result.size()));
 
@@ -204,14 +261,230 @@ public class WarehouseRepository {
     }
 
     /**
-     * Records a sub-set of warehouse response data. As the parts must be collated in
-     * their date order, this class is intended to improve the sort performance.
-     * Implements comparable to compare data sets using the first start date of each
-     * set, allowing sets to be sorted in their parts rather than the individual elements.
+     * Identifies an in-flight request. The reader forms part of the key as it governs
+     * the type, and form, of the parsed response.
+     */
+    private record InFlightKey(WarehouseRequest request, WarehouseReader<?> reader) {
+    }
+
+    /**
+     * The retrieval of a single sub-request (slice) from the warehouse. It is registered
+     * as in-flight for the duration of its execution, so that identical sub-requests
+     * can await the same result. On completion (successful or otherwise) it removes
+     * itself from the in-flight register, so subsequent requests will be submitted to
+     * the warehouse afresh. If all those awaiting it lose interest before it completes,
+     * it is cancelled.
+     * <p>
+     * A failed request is retried, up to the configured number of times, before the
+     * slice is failed.
+     * <p>
+     * If hedging is enabled, and the slice has not completed within the configured
+     * percentile of recent response times, a duplicate request is issued. The result
+     * of whichever request completes first is taken, and the other is cancelled. The
+     * slice only fails if all of its requests fail.
+     *
+     * @param <T> the class of data to be retrieved and parsed.
+     */
+    private class SliceFetch<T extends DateRangedData> {
+        private final InFlightKey key;
+        private final WarehouseRequest request;
+        private final WarehouseReader<T> reader;
+        private final CompletableFuture<ResponsePart<T>> result = new CompletableFuture<>();
+        private final List<Future<?>> attempts = new CopyOnWriteArrayList<>();
+        private final AtomicInteger pendingAttempts = new AtomicInteger();
+        private final AtomicInteger waiters = new AtomicInteger(1);
+
+        public SliceFetch(InFlightKey aKey, WarehouseRequest aRequest, WarehouseReader<T> aReader) {
+            key = aKey;
+            request = aRequest;
+            reader = aReader;
+        }
+
+        public void start() {
+            // on completion, deregister and cancel any outstanding attempts
+            result.whenComplete((part, error) -> {
+                inFlight.remove(key, this);
+                attempts.forEach(attempt -> attempt.cancel(true));
+            });
+
+            attempt();
+
+            // schedule a hedged request - if enough response times are known to judge a straggler
+            LatencyTracker latencies = limiter.getLatencies();
+            if ((config.isHedgingEnabled()) && (latencies.size() >= config.getHedgeSampleSize())) {
+                long delay = latencies.percentile(config.getHedgePercentile()).toMillis();
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executorService)
+                    .execute(this::hedge);
+            }
+        }
+
+        /**
+         * Registers another caller awaiting the result of this slice. Fails if all
+         * previous callers have already lost interest, and the slice is being cancelled.
+         *
+         * @return true if the caller was registered.
+         */
+        public boolean join() {
+            int count;
+            do {
+                count = waiters.get();
+                if (count == 0) {
+                    return false;
+                }
+            } while (!waiters.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        /**
+         * Deregisters a caller awaiting the result of this slice. If no callers remain,
+         * and the slice is yet to complete, it is cancelled.
+         */
+        public void release() {
+            if ((waiters.decrementAndGet() == 0) && (result.cancel(false))) {
+                log.debug("Cancelled warehouse request [request: {}]", request);
+            }
+        }
+
+        private void hedge() {
+            if (!result.isDone()) {
+                log.debug("Hedging slow warehouse request [request: {}]", request);
+                attempt();
+            }
+        }
+
+        private void attempt() {
+            pendingAttempts.incrementAndGet();
+            attempts.add(executorService.submit(() -> {
+                Duration backoff = config.getRetryBackoff();
+                int retries = 0;
+                while (!result.isDone()) {
+                    try {
+                        result.complete(new WarehouseTask<>(request, reader, limiter).call());
+                        return;
+                    } catch (InterruptedException e) {
+                        // the slice is complete, or cancelled
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        if (retries++ >= config.getMaxRetries()) {
+                            // only fail the slice if no other attempt remains outstanding
+                            if (pendingAttempts.decrementAndGet() == 0) {
+                                result.completeExceptionally(e);
+                            }
+                            return;
+                        }
+
+                        log.warn("Retrying failed warehouse request [request: {}, retry: {}]", request, retries, e);
+                        try {
+                            Thread.sleep(backoff);
+                        } catch (InterruptedException ie) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        backoff = backoff.multipliedBy(2);
+                    }
+                }
+            }));
+        }
+    }
+
+    /**
+     * Gathers the slices into which a single request has been divided, and delivers their
+     * results in the order they were forked. The slices are treated as a unit; should any
+     * one of them fail, the others are cancelled immediately (unless other requests are
+     * also awaiting them) and the failure is raised to the caller.
+     * <p>
+     * The scope must be closed once the caller has finished with it, to release any
+     * slices that have not been consumed.
+     *
+     * @param <T> the class of data to be retrieved and parsed.
+     */
+    private static class FetchScope<T extends DateRangedData> {
+        private final WarehouseRequest request;
+        private final List<SliceFetch<T>> slices = new ArrayList<>();
+        private final List<CompletableFuture<ResponsePart<T>>> parts = new ArrayList<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        public FetchScope(WarehouseRequest aRequest) {
+            request = aRequest;
+        }
+
+        /**
+         * Adds the given slice to the scope. The scope takes a copy of the slice's future
+         * so that it can cancel its own interest without affecting other callers.
+         */
+        public void fork(SliceFetch<T> aSlice) {
+            CompletableFuture<ResponsePart<T>> part = aSlice.result.copy();
+            part.whenComplete((response, error) -> {
+                if ((error != null) && (!(error instanceof CancellationException))) {
+                    fail(error instanceof CompletionException ? error.getCause() : error);
+                }
+            });
+
+            slices.add(aSlice);
+            parts.add(part);
+        }
+
+        /**
+         * Returns the stream of the slices' data, in the order the slices were forked.
+         * Each slice is awaited only when the stream reaches it.
+         */
+        public Stream<T> stream() {
+            return parts.stream()
+                .flatMap(part -> {
+                    // wait for the next request in date order to complete
+                    log.debug("Waiting for next warehouse response");
+                    return await(part).data.stream();
+                });
+        }
+
+        /**
+         * Releases all slices in this scope. Those not awaited by other callers, and not
+         * yet complete, will be cancelled.
+         */
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                parts.forEach(part -> part.cancel(false));
+                slices.forEach(SliceFetch::release);
+            }
+        }
+
+        private void fail(Throwable aCause) {
+            if (failure.compareAndSet(null, aCause)) {
+                log.warn("Failed to retrieve warehouse data - cancelling request [request: {}]", request, aCause);
+                close();
+            }
+        }
+
+        private ResponsePart<T> await(CompletableFuture<ResponsePart<T>> aPart) {
+            try {
+                ResponsePart<T> part = aPart.get();
+                log.debug("Retrieved warehouse response [startDate: {}, size: {}]", part.startDate, part.size());
+                return part;
+            } catch (InterruptedException e) {
+                // Preserve interrupt status
+                Thread.currentThread().interrupt();
+                close();
+                throw new WarehouseException(request, e);
+            } catch (ExecutionException e) {
+                // the cause is the exception raised by the WarehouseTask
+                fail(e.getCause());
+                throw new WarehouseException(request, e.getCause());
+            } catch (CancellationException e) {
+                // cancelled because a sibling slice failed
+                throw new WarehouseException(request, (failure.get() == null) ? e : failure.get());
+            }
+        }
+    }
+
+    /**
+     * Records a sub-set of warehouse response data; the response to one of the smaller
+     * requests into which the original request was divided.
      *
      * @param <T> the class of DateRangeData held in the parts.
      */
-    private static class ResponsePart<T extends DateRangedData> implements Comparable<ResponsePart<T>> {
+    private static class ResponsePart<T extends DateRangedData> {
         private final Instant startDate;
         private final List<T> data;
 
@@ -227,10 +500,5 @@ public class WarehouseRepository {
         public int size() {
             return data.size();
         }
-
-        @Override
-        public int compareTo(ResponsePart aOther) {
-            return (aOther == null) ? 1 : this.startDate.compareTo(aOther.startDate);
-        }
     }
 }
@@ -0,0 +1,315 @@
+package com.hillayes.accumulator.warehouse;
+
+import com.hillayes.accumulator.resolutions.DefaultResolution;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WarehouseRepositoryTest {
+    @Test
+    public void testInFlightRequestsAreShared() {
+        WarehouseRepository warehouse = new WarehouseRepository();
+
+        // a reader that counts the lines it parses
+        AtomicInteger lineCount = new AtomicInteger();
+        LocalReader localReader = new LocalReader();
+        WarehouseReader<LocalData> reader = (request, line, index) -> {
+            lineCount.incrementAndGet();
+            return localReader.readLine(request, line, index);
+        };
+
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant start = end.minus(6, ChronoUnit.HOURS);
+        WarehouseRequest request = WarehouseRequest.builder()
+            .resolution(DefaultResolution.MINUTE)
+            .startDate(start)
+            .endDate(end)
+            .build();
+
+        // issue two overlapping requests for the same data
+        CompletableFuture<List<LocalData>> first = CompletableFuture.supplyAsync(() -> warehouse.get(request, reader));
+        CompletableFuture<List<LocalData>> second = CompletableFuture.supplyAsync(() -> warehouse.get(request, reader));
+
+        // both receive the whole data range
+        assertEquals(360, first.join().size());
+        assertEquals(360, second.join().size());
+
+        // but the warehouse was only asked for the data once
+        assertEquals(360, lineCount.get());
+    }
+
+    @Test
+    public void testOverlappingRequestsShareSlices() {
+        WarehouseRepository warehouse = new WarehouseRepository(Executors.newVirtualThreadPerTaskExecutor(),
+            WarehouseConfig.builder()
+                .initialSliceSize(Duration.ofMinutes(60))
+                .build());
+
+        // a reader that counts the lines it parses
+        AtomicInteger lineCount = new AtomicInteger();
+        LocalReader localReader = new LocalReader();
+        WarehouseReader<LocalData> reader = (request, line, index) -> {
+            lineCount.incrementAndGet();
+            return localReader.readLine(request, line, index);
+        };
+
+        // two requests whose bounds differ, but which overlap by five and a half hours
+        Instant start = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(2, ChronoUnit.DAYS);
+        WarehouseRequest first = WarehouseRequest.builder()
+            .resolution(DefaultResolution.MINUTE)
+            .startDate(start)
+            .endDate(start.plus(6, ChronoUnit.HOURS))
+            .build();
+        WarehouseRequest second = WarehouseRequest.builder()
+            .resolution(DefaultResolution.MINUTE)
+            .startDate(start.plus(30, ChronoUnit.MINUTES))
+            .endDate(start.plus(7, ChronoUnit.HOURS))
+            .build();
+
+        CompletableFuture<List<LocalData>> firstData = CompletableFuture.supplyAsync(() -> warehouse.get(first, reader));
+        CompletableFuture<List<LocalData>> secondData = CompletableFuture.supplyAsync(() -> warehouse.get(second, reader));
+        assertEquals(360, firstData.join().size());
+        assertEquals(390, secondData.join().size());
+
+        // the five whole hours they share were only fetched once
+        assertEquals(360 + 90, lineCount.get());
+    }
+
+    @Test
+    public void testOverlappingRequestsShareSlicesAfterAdjustment() throws Exception {
+        // every response is fast, so the slice size grows after each
+        WarehouseRepository warehouse = new WarehouseRepository(Executors.newVirtualThreadPerTaskExecutor(),
+            WarehouseConfig.builder()
+                .initialSliceSize(Duration.ofMinutes(60))
+                .minSliceSize(Duration.ofMinutes(15))
+                .sliceIncrement(Duration.ofMinutes(15))
+                .targetLatency(Duration.ofMinutes(1))
+                .build());
+
+        // a reader that counts the lines it parses, and stalls those of the fourth hour
+        Instant start = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(2, ChronoUnit.DAYS);
+        Instant stalled = start.plus(3, ChronoUnit.HOURS);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger stalledCount = new AtomicInteger();
+        LocalReader localReader = new LocalReader();
+        WarehouseReader<LocalData> reader = (request, line, index) -> {
+            LocalData result = localReader.readLine(request, line, index);
+            if ((!result.getStartDate().isBefore(stalled)) && (result.getStartDate().isBefore(stalled.plus(1, ChronoUnit.HOURS)))) {
+                stalledCount.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }
+            return result;
+        };
+
+        WarehouseRequest first = WarehouseRequest.builder()
+            .resolution(DefaultResolution.MINUTE)
+            .startDate(start)
+            .endDate(start.plus(4, ChronoUnit.HOURS))
+            .build();
+        WarehouseRequest second = WarehouseRequest.builder()
+            .resolution(DefaultResolution.MINUTE)
+            .startDate(stalled)
+            .endDate(start.plus(5, ChronoUnit.HOURS))
+            .build();
+
+        try (Stream<LocalData> firstData = warehouse.stream(first, reader)) {
+            // the first three hours are delivered, and have grown the slice size
+            Iterator<LocalData> iterator = firstData.iterator();
+            for (int i = 0; i < 180; i++) {
+                iterator.next();
+            }
+
+            // the second request overlaps the hour still in flight
+            CompletableFuture<List<LocalData>> secondData = CompletableFuture.supplyAsync(() -> warehouse.get(second, reader));
+            Thread.sleep(200);
+            release.countDown();
+
+            int remaining = 0;
+            while (iterator.hasNext()) {
+                iterator.next();
+                remaining++;
+            }
+            assertEquals(60, remaining);
+            assertEquals(120, secondData.join().size());
+        }
+
+        // the fourth hour was only fetched once
+        assertEquals(60, stalledCount.get());
+    }
+
+    @Test
+    public void testHedgedRequests() throws Exception {
+        // hedge any request that takes longer than the median
+        WarehouseRepository warehouse = new WarehouseRepository(Executors.newVirtualThreadPerTaskExecutor(),
+            WarehouseConfig.builder()
+                .initialSliceSize(Duration.ofMinutes(30))
+                .hedgingEnabled(true)
+                .hedgePercentile(0.5)
+                .hedgeSampleSize(4)
+                .build());
+
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant start = end.minus(6, ChronoUnit.HOURS);
+        WarehouseRequest request = WarehouseRequest.builder()
+            .resolution(DefaultResolution.MINUTE)
+            .startDate(start)
+            .endDate(end)
+            .build();
+
+        // a reader that, once armed, stalls the first attempt to parse the first line
+        AtomicBoolean armed = new AtomicBoolean();
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        LocalReader localReader = new LocalReader();
+        WarehouseReader<LocalData> reader = (aRequest, line, index) -> {
+            LocalData result = localReader.readLine(aRequest, line, index);
+            if ((armed.get()) && (result.getStartDate().equals(start)) && (attempts.incrementAndGet() == 1)) {
+                try {
+                    Thread.sleep(Duration.ofSeconds(30));
+                } catch (InterruptedException e) {
+                    cancelled.set(true);
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }
+            return result;
+        };
+
+        // a first request to record the warehouse response times
+        assertEquals(360, warehouse.get(request, reader).size());
+
+        // the stalled attempt is hedged, and the hedge's result is taken
+        armed.set(true);
+        long started = System.currentTimeMillis();
+        List<LocalData> data = warehouse.get(request, reader);
+        assertTrue(System.currentTimeMillis() - started < 10_000);
+        assertEquals(2, attempts.get());
+
+        assertEquals(360, data.size());
+        assertEquals(start, data.get(0).getStartDate());
+        assertEquals(end, data.get(data.size() - 1).getEndDate());
+
+        // the stalled attempt is cancelled
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(cancelled::get);
+    }
+
+    @Test
+    public void testResponsesAreDeliveredInDateOrder() {
+        // small slices, so the responses arrive out of order
+        WarehouseRepository warehouse = new WarehouseRepository(Executors.newVirtualThreadPerTaskExecutor(),
+            WarehouseConfig.builder()
+                .initialSliceSize(Duration.ofMinutes(15))
+                .build());
+
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant start = end.minus(6, ChronoUnit.HOURS);
+        WarehouseRequest request = WarehouseRequest.builder()
+            .resolution(DefaultResolution.MINUTE)
+            .startDate(start)
+            .endDate(end)
+            .build();
+
+        try (Stream<LocalData> stream = warehouse.stream(request, new LocalReader())) {
+            List<LocalData> data = stream.toList();
+            assertEquals(360, data.size());
+
+            // each element follows on from the previous
+            Instant expected = start;
+            for (LocalData entry : data) {
+                assertEquals(expected, entry.getStartDate());
+                expected = entry.getEndDate();
+            }
+        }
+    }
+
+    @Test
+    public void testSlicesAreAlignedAfterBackoff() {
+        // every response is slow, so the slice size is halved after each
+        WarehouseRepository warehouse = new WarehouseRepository(Executors.newVirtualThreadPerTaskExecutor(),
+            WarehouseConfig.builder()
+                .initialSliceSize(Duration.ofMinutes(135))
+                .minSliceSize(Duration.ofSeconds(1))
+                .targetLatency(Duration.ofMillis(1))
+                .build());
+
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant start = end.minus(6, ChronoUnit.HOURS);
+        WarehouseRequest request = WarehouseRequest.builder()
+            .resolution(DefaultResolution.MINUTE)
+            .startDate(start)
+            .endDate(end)
+            .build();
+
+        // the first request reduces the slice size to a fraction of a minute
+        assertEquals(360, warehouse.get(request, new LocalReader()).size());
+
+        // each minute is still returned once, on its boundary
+        List<LocalData> data = warehouse.get(request, new LocalReader());
+        assertEquals(360, data.size());
+        Instant expected = start;
+        for (LocalData entry : data) {
+            assertEquals(expected, entry.getStartDate());
+            assertEquals(expected.plus(1, ChronoUnit.MINUTES), entry.getEndDate());
+            expected = entry.getEndDate();
+        }
+    }
+
+    @Test
+    public void testFailedSliceFailsWholeRequest() {
+        WarehouseRepository warehouse = new WarehouseRepository(Executors.newVirtualThreadPerTaskExecutor(),
+            WarehouseConfig.builder()
+                .initialSliceSize(Duration.ofMinutes(60))
+                .maxRetries(2)
+                .retryBackoff(Duration.ofMillis(10))
+                .build());
+
+        Instant end = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        Instant start = end.minus(6, ChronoUnit.HOURS);
+        WarehouseRequest request = WarehouseRequest.builder()
+            .resolution(DefaultResolution.MINUTE)
+            .startDate(start)
+            .endDate(end)
+            .build();
+
+        // a reader that always fails to parse one particular line
+        Instant failure = start.plus(3, ChronoUnit.HOURS);
+        AtomicInteger failureCount = new AtomicInteger();
+        LocalReader localReader = new LocalReader();
+        WarehouseReader<LocalData> reader = (aRequest, line, index) -> {
+            LocalData result = localReader.readLine(aRequest, line, index);
+            if (result.getStartDate().equals(failure)) {
+                failureCount.incrementAndGet();
+                throw new IllegalStateException("Failed to parse line: " + line);
+            }
+            return result;
+        };
+
+        WarehouseException exception = assertThrows(WarehouseException.class, () -> warehouse.get(request, reader));
+        assertEquals(request, exception.getRequest());
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+
+        // the failed slice was retried before the whole request failed
+        assertEquals(3, failureCount.get());
+    }
+}
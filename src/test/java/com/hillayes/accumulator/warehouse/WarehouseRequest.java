@@ -49,32 +49,45 @@ public class WarehouseRequest {
 
     /**
      * Divides this request into smaller units of the same resolution but no larger
-     * than the given duration.
+     * than the given duration. The duration is rounded down to a whole number of the
+     * resolution's periods, but is at least one period; and the units are divided on
+     * the resolution's boundaries. So no period is split across two units, whatever
+     * the duration given.
+     * <p>
+     * The units are cut on a fixed grid of that duration, aligned to the epoch; rather
+     * than from this request's start date. So the overlapping parts of two requests,
+     * whatever their bounds, are divided into identical units; which can be shared
+     * whilst in flight.
      *
      * @param aDuration the duration to which the request should be divided.
      * @return the list of requests that divide this request into smaller units of,
      * no more than, the given duration.
      */
     public List<WarehouseRequest> divide(Duration aDuration) {
-        List<WarehouseRequest> result = new ArrayList<>();
-        if (!startDate.plus(aDuration).isBefore(endDate)) {
-            result.add(this);
-        } else {
-            Instant s = startDate;
-            while (s.isBefore(endDate)) {
-                Instant e = s.plus(aDuration);
-                if (e.isAfter(endDate)) {
-                    e = endDate;
-                }
+        // the slice size, as a whole number of periods
+        Instant first = resolution.roundDown(startDate);
+        Duration period = Duration.between(first, resolution.next(first));
+        long slice = period.multipliedBy(Math.max(1, aDuration.toMillis() / period.toMillis())).toMillis();
 
-                result.add(WarehouseRequest.builder()
-                    .nameserver(nameserver)
-                    .resolution(resolution)
-                    .startDate(s)
-                    .endDate(e)
-                    .build());
-                s = e;
+        List<WarehouseRequest> result = new ArrayList<>();
+        Instant s = startDate;
+        while (s.isBefore(endDate)) {
+            // the next line of the grid
+            Instant e = resolution.roundDown(Instant.ofEpochMilli(Math.floorDiv(s.toEpochMilli(), slice) * slice + slice));
+            if (!e.isAfter(s)) {
+                e = resolution.next(s);
             }
+            if (e.isAfter(endDate)) {
+                e = endDate;
+            }
+
+            result.add(WarehouseRequest.builder()
+                .nameserver(nameserver)
+                .resolution(resolution)
+                .startDate(s)
+                .endDate(e)
+                .build());
+            s = e;
         }
 
         return result;